@@ -0,0 +1,140 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2025 Stephen P. Ryan <stephen.p.ryan@wustl.edu>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Quantile bins for continuous Z columns, computed once per forest and shared
+ * by every tree. Each row of the original data gets a bin code per binned
+ * column (a byte when there are at most 127 bins, a short otherwise).
+ *
+ * Bin b holds cutPoints[b-1] <= z < cutPoints[b], so the split rule z <
+ * cutPoints[b] sends exactly bins 0..b to the left.
+ *
+ * @author Stephen P. Ryan <stephen.p.ryan@wustl.edu>
+ */
+public class BinnedZ {
+
+    private final double[][] cutPoints;
+    private final byte[][] byteCodes;
+    private final short[][] shortCodes;
+
+    /**
+     * @param data Backing store of the original data
+     * @param sampleIndex Rows of the store used to place the quantiles
+     * @param columns Z columns to bin
+     * @param maxBins Maximum number of bins per column (at most 32767)
+     */
+    public BinnedZ(ColumnStore data, int[] sampleIndex, int[] columns, int maxBins) {
+        if (maxBins < 2 || maxBins > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Number of bins must be between 2 and " + Short.MAX_VALUE + ": " + maxBins);
+        }
+        cutPoints = new double[data.getNumColumnsZ()][];
+        byteCodes = new byte[data.getNumColumnsZ()][];
+        shortCodes = new short[data.getNumColumnsZ()][];
+
+        for (int k : columns) {
+            double[] sorted = new double[sampleIndex.length];
+            for (int i = 0; i < sampleIndex.length; i++) {
+                sorted[i] = data.getZ(sampleIndex[i], k);
+            }
+            Arrays.sort(sorted);
+
+            double[] cuts = new double[maxBins - 1];
+            int numCuts = 0;
+            for (int q = 1; q < maxBins; q++) {
+                double v = sorted[(int) ((long) q * sorted.length / maxBins)];
+                if (v > sorted[0] && (numCuts == 0 || v > cuts[numCuts - 1])) {
+                    cuts[numCuts] = v;
+                    numCuts++;
+                }
+            }
+            cutPoints[k] = Arrays.copyOf(cuts, numCuts);
+
+            if (numCuts < Byte.MAX_VALUE) {
+                byteCodes[k] = new byte[data.getNumRows()];
+                for (int i = 0; i < data.getNumRows(); i++) {
+                    byteCodes[k][i] = (byte) computeBin(data.getZ(i, k), cutPoints[k]);
+                }
+            } else {
+                shortCodes[k] = new short[data.getNumRows()];
+                for (int i = 0; i < data.getNumRows(); i++) {
+                    shortCodes[k][i] = (short) computeBin(data.getZ(i, k), cutPoints[k]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of cut points less than or equal to z (NaN goes to the top bin,
+     * matching z < splitPoint being false).
+     */
+    private static int computeBin(double z, double[] cuts) {
+        if (Double.isNaN(z)) {
+            return cuts.length;
+        }
+        int low = 0;
+        int high = cuts.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cuts[mid] <= z) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public boolean isBinned(int column) {
+        return cutPoints[column] != null;
+    }
+
+    public int getNumBins(int column) {
+        return cutPoints[column].length + 1;
+    }
+
+    /**
+     * @param row Row of the original data
+     * @param column Z column
+     * @return Bin code of the observation
+     */
+    public int getBin(int row, int column) {
+        if (byteCodes[column] != null) {
+            return byteCodes[column][row];
+        }
+        return shortCodes[column][row];
+    }
+
+    /**
+     * @param column Z column
+     * @param b Bin index
+     * @return Split point separating bins 0..b from the bins above
+     */
+    public double getUpperCutPoint(int column, int b) {
+        return cutPoints[column][b];
+    }
+
+}
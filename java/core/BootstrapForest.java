@@ -43,7 +43,7 @@ public class BootstrapForest {
 
     public BootstrapForest(MomentSpecification spec, int numberBootstraps, int numberTreesInForest, long randomSeed, TreeOptions options) {
         // DataLens originalLens = new DataLens(spec.getX(), spec.getY(), pmUtility.getColumn(spec.getX(), 0));
-        DataLens originalLens = new DataLens(spec.getX(), spec.getY(), spec.getZ(), spec.getBalancingVector());
+        DataLens originalLens = new DataLens(spec.getColumnStore(), spec.getBalancingVector());
 
         Random rng = new Random(randomSeed);
         for (int i = 0; i < numberBootstraps; i++) {
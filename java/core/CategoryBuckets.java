@@ -0,0 +1,180 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2025 Stephen P. Ryan <stephen.p.ryan@wustl.edu>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Positions of a lens's observations grouped by the value of one discrete Z
+ * column. The observations on either side of a bipartition are then just the
+ * concatenation of that side's buckets, and a child lens's buckets are the
+ * parent's buckets restricted to the child's observations.
+ *
+ * @author Stephen P. Ryan <stephen.p.ryan@wustl.edu>
+ */
+public class CategoryBuckets {
+
+    private final int[] categories;
+    private final int[][] positions;
+
+    private CategoryBuckets(int[] categories, int[][] positions) {
+        this.categories = categories;
+        this.positions = positions;
+    }
+
+    /**
+     * @param lens Lens to index
+     * @param column Discrete Z column
+     * @return Buckets of every observation in the lens
+     */
+    static CategoryBuckets build(DataLens lens, int column) {
+        int n = lens.getNumObs();
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = lens.getCategory(i, column);
+        }
+        int[] distinct = values.clone();
+        Arrays.sort(distinct);
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || distinct[i] != distinct[i - 1]) {
+                distinct[m] = distinct[i];
+                m++;
+            }
+        }
+        int[] categories = Arrays.copyOf(distinct, m);
+
+        int[] counts = new int[m];
+        int[] category = new int[n];
+        for (int i = 0; i < n; i++) {
+            category[i] = Arrays.binarySearch(categories, values[i]);
+            counts[category[i]]++;
+        }
+        int[][] positions = new int[m][];
+        for (int c = 0; c < m; c++) {
+            positions[c] = new int[counts[c]];
+        }
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < n; i++) {
+            positions[category[i]][counts[category[i]]] = i;
+            counts[category[i]]++;
+        }
+        return new CategoryBuckets(categories, positions);
+    }
+
+    /**
+     * @param parentToChild Position in the child of each parent position, or
+     * -1 if the observation is not in the child
+     * @return Buckets of the child, dropping categories it does not contain
+     */
+    CategoryBuckets restrict(int[] parentToChild) {
+        int[] childCategories = new int[categories.length];
+        int[][] childPositions = new int[categories.length][];
+        int m = 0;
+        for (int c = 0; c < categories.length; c++) {
+            int[] bucket = new int[positions[c].length];
+            int count = 0;
+            for (int parentPosition : positions[c]) {
+                if (parentToChild[parentPosition] >= 0) {
+                    bucket[count] = parentToChild[parentPosition];
+                    count++;
+                }
+            }
+            if (count > 0) {
+                childCategories[m] = categories[c];
+                childPositions[m] = count == bucket.length ? bucket : Arrays.copyOf(bucket, count);
+                m++;
+            }
+        }
+        return new CategoryBuckets(Arrays.copyOf(childCategories, m), Arrays.copyOf(childPositions, m));
+    }
+
+    /**
+     * @param partition Bipartition of the categories
+     * @return Positions on the left and right of the partition: the
+     * concatenated buckets of each side (categories in neither group go
+     * right)
+     */
+    int[][] split(IntegerPartition partition) {
+        int countLeft = 0;
+        boolean[] left = new boolean[categories.length];
+        for (int c = 0; c < categories.length; c++) {
+            left[c] = partition.isLeft(categories[c]);
+            if (left[c]) {
+                countLeft += positions[c].length;
+            }
+        }
+        int[] leftPositions = new int[countLeft];
+        int[] rightPositions = new int[getNumObs() - countLeft];
+        int l = 0;
+        int r = 0;
+        for (int c = 0; c < categories.length; c++) {
+            if (left[c]) {
+                System.arraycopy(positions[c], 0, leftPositions, l, positions[c].length);
+                l += positions[c].length;
+            } else {
+                System.arraycopy(positions[c], 0, rightPositions, r, positions[c].length);
+                r += positions[c].length;
+            }
+        }
+        return new int[][]{leftPositions, rightPositions};
+    }
+
+    public int getNumObs() {
+        int n = 0;
+        for (int[] bucket : positions) {
+            n += bucket.length;
+        }
+        return n;
+    }
+
+    public int getNumCategories() {
+        return categories.length;
+    }
+
+    /**
+     * @return the categories present, in increasing order
+     */
+    public ArrayList<Integer> getCategories() {
+        ArrayList<Integer> list = new ArrayList<>(categories.length);
+        for (int category : categories) {
+            list.add(category);
+        }
+        return list;
+    }
+
+    public int getCategory(int c) {
+        return categories[c];
+    }
+
+    /**
+     * @param c Index of the category (not its value)
+     * @return Positions in the lens of the observations in category c
+     */
+    public int[] getPositions(int c) {
+        return positions[c];
+    }
+
+}
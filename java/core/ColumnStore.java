@@ -0,0 +1,60 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2025 Stephen P. Ryan <stephen.p.ryan@wustl.edu>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package core;
+
+/**
+ * Backing data shared by every lens cut from the same sample: Y and the
+ * columns of X and Z, addressed by original row. A lens is a view on it
+ * through an index array. HeapColumnStore keeps the columns in arrays;
+ * MappedColumnStore reads them off-heap from a columnar file, for samples
+ * that do not fit in the heap next to the resampled lenses;
+ * CompactColumnStore dictionary-encodes the discrete Z columns and can hold
+ * the continuous ones as float32.
+ *
+ * @author Stephen P. Ryan <stephen.p.ryan@wustl.edu>
+ */
+public abstract class ColumnStore {
+
+    public abstract int getNumRows();
+
+    public abstract int getNumColumnsX();
+
+    public abstract int getNumColumnsZ();
+
+    public abstract double getY(int row);
+
+    public abstract double getX(int row, int j);
+
+    public abstract double getZ(int row, int j);
+
+    /**
+     * Value of a discrete Z column as the integer category the split search
+     * works with. Stores that encode discrete columns override this to skip
+     * the cast.
+     */
+    public int getCategory(int row, int j) {
+        return (int) getZ(row, j);
+    }
+
+}
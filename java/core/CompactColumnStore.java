@@ -0,0 +1,194 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2025 Stephen P. Ryan <stephen.p.ryan@wustl.edu>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Heap column store with compact Z columns. Discrete columns are dictionary
+ * encoded: each row holds the index of its value among the column's distinct
+ * values, as a byte when there are at most 256 of them, a short up to 65536
+ * and an int beyond, so a category scan reads one or two bytes per row and
+ * getCategory() needs no cast from double. Continuous columns can optionally
+ * be held as float32, which halves them; the forest then sees the
+ * float-rounded values, so split points and estimates can differ slightly
+ * from a double store. Y and X stay double.
+ *
+ * @author Stephen P. Ryan <stephen.p.ryan@wustl.edu>
+ */
+public class CompactColumnStore extends ColumnStore {
+
+    private final double[] y;
+    private final double[][] x;
+
+    private final double[][] levels;
+    private final int[][] categories;
+    private final byte[][] byteCodes;
+    private final short[][] shortCodes;
+    private final int[][] intCodes;
+    private final float[][] floatZ;
+    private final double[][] doubleZ;
+
+    /**
+     * @param source Store to copy
+     * @param discreteVector Which Z columns are discrete (dictionary encoded)
+     * @param floatContinuous Whether to hold the continuous Z columns as
+     * float32
+     */
+    public CompactColumnStore(ColumnStore source, Boolean[] discreteVector, boolean floatContinuous) {
+        int n = source.getNumRows();
+        y = new double[n];
+        for (int i = 0; i < n; i++) {
+            y[i] = source.getY(i);
+        }
+        x = new double[source.getNumColumnsX()][n];
+        for (int j = 0; j < x.length; j++) {
+            for (int i = 0; i < n; i++) {
+                x[j][i] = source.getX(i, j);
+            }
+        }
+
+        int numColumnsZ = source.getNumColumnsZ();
+        levels = new double[numColumnsZ][];
+        categories = new int[numColumnsZ][];
+        byteCodes = new byte[numColumnsZ][];
+        shortCodes = new short[numColumnsZ][];
+        intCodes = new int[numColumnsZ][];
+        floatZ = new float[numColumnsZ][];
+        doubleZ = new double[numColumnsZ][];
+        for (int j = 0; j < numColumnsZ; j++) {
+            double[] column = new double[n];
+            for (int i = 0; i < n; i++) {
+                column[i] = source.getZ(i, j);
+            }
+            if (discreteVector[j]) {
+                encode(j, column);
+            } else if (floatContinuous) {
+                floatZ[j] = new float[n];
+                for (int i = 0; i < n; i++) {
+                    floatZ[j][i] = (float) column[i];
+                }
+            } else {
+                doubleZ[j] = column;
+            }
+        }
+    }
+
+    private void encode(int j, double[] column) {
+        double[] sorted = column.clone();
+        Arrays.sort(sorted);
+        int m = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || Double.compare(sorted[i], sorted[m - 1]) != 0) {
+                sorted[m] = sorted[i];
+                m++;
+            }
+        }
+        levels[j] = Arrays.copyOf(sorted, m);
+        categories[j] = new int[m];
+        for (int c = 0; c < m; c++) {
+            categories[j][c] = (int) levels[j][c];
+        }
+
+        int n = column.length;
+        if (m <= 256) {
+            byteCodes[j] = new byte[n];
+            for (int i = 0; i < n; i++) {
+                byteCodes[j][i] = (byte) Arrays.binarySearch(levels[j], column[i]);
+            }
+        } else if (m <= 65536) {
+            shortCodes[j] = new short[n];
+            for (int i = 0; i < n; i++) {
+                shortCodes[j][i] = (short) Arrays.binarySearch(levels[j], column[i]);
+            }
+        } else {
+            intCodes[j] = new int[n];
+            for (int i = 0; i < n; i++) {
+                intCodes[j][i] = Arrays.binarySearch(levels[j], column[i]);
+            }
+        }
+    }
+
+    /**
+     * @return Dictionary index of z_ij (only for a discrete column)
+     */
+    private int getCode(int row, int j) {
+        if (byteCodes[j] != null) {
+            return byteCodes[j][row] & 0xFF;
+        }
+        if (shortCodes[j] != null) {
+            return shortCodes[j][row] & 0xFFFF;
+        }
+        return intCodes[j][row];
+    }
+
+    public boolean isEncoded(int j) {
+        return levels[j] != null;
+    }
+
+    @Override
+    public int getNumRows() {
+        return y.length;
+    }
+
+    @Override
+    public int getNumColumnsX() {
+        return x.length;
+    }
+
+    @Override
+    public int getNumColumnsZ() {
+        return levels.length;
+    }
+
+    @Override
+    public double getY(int row) {
+        return y[row];
+    }
+
+    @Override
+    public double getX(int row, int j) {
+        return x[j][row];
+    }
+
+    @Override
+    public double getZ(int row, int j) {
+        if (doubleZ[j] != null) {
+            return doubleZ[j][row];
+        }
+        if (floatZ[j] != null) {
+            return floatZ[j][row];
+        }
+        return levels[j][getCode(row, j)];
+    }
+
+    @Override
+    public int getCategory(int row, int j) {
+        if (levels[j] != null) {
+            return categories[j][getCode(row, j)];
+        }
+        return (int) getZ(row, j);
+    }
+
+}
@@ -30,6 +30,8 @@ package core;
  */
 public abstract class ContainerMoment {
 
+    protected Jama.Matrix startingBeta;
+
     /**
      * Returns the estimated parameter in this partition.
      * @return
@@ -52,5 +54,43 @@ public abstract class ContainerMoment {
      */
     public abstract Jama.Matrix getJacobianNoDivision(Jama.Matrix beta);
     public abstract void computeBetaAndErrors();
+
+    /**
+     * @param startingBeta Full parameter vector to start iterative estimation
+     * from (null starts from zero)
+     */
+    public void setStartingBeta(Jama.Matrix startingBeta) {
+        this.startingBeta = startingBeta;
+    }
+
+    /**
+     * Copy the starting beta into a 1-indexed Uncmin guess over the
+     * parameters that are not imposed as homogeneous. Leaves the guess at
+     * zero if there is no usable starting value.
+     */
+    protected void fillStartingGuess(double[] guess, boolean[] homogeneityIndex, boolean allParametersHomogeneous) {
+        if (startingBeta == null) {
+            return;
+        }
+        for (int i = 0; i < startingBeta.getRowDimension(); i++) {
+            if (!Double.isFinite(startingBeta.get(i, 0))) {
+                return;
+            }
+        }
+        int counter = 0;
+        for (int i = 0; i < startingBeta.getRowDimension() && counter + 1 < guess.length; i++) {
+            if (allParametersHomogeneous || !homogeneityIndex[i]) {
+                guess[counter + 1] = startingBeta.get(i, 0);
+                counter++;
+            }
+        }
+    }
+
+    /**
+     * @return whether computeBetaAndErrors failed to produce an estimate
+     */
+    public boolean didEstimatorFail() {
+        return false;
+    }
     
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -24,13 +24,7 @@
 package core;
 
 import Jama.Matrix;
-import java.util.ArrayList;
 import java.util.Random;
-import java.util.TreeSet;
-import java.util.Collections;
-import java.util.Map;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Arrays;
 
 /**
@@ -39,36 +33,96 @@ import java.util.Arrays;
  */
 public class DataLens {
 
-    final Jama.Matrix originalDataX;
-    final Jama.Matrix originalDataY;
-    final Jama.Matrix originalDataZ;
+    final ColumnStore data;
     final Jama.Matrix balancingVector;
     final int[] strataColumnIndex;
+
+    /**
+     * Rows of the backing store in this lens: dataIndex[offset] through
+     * dataIndex[offset + numObs - 1]. The nodes of a tree are windows into
+     * the growing sample's array (the tree's index arena), which each split
+     * that is taken partitions in place.
+     */
     int[] dataIndex;
+    int offset;
+    int numObs;
+
+    /**
+     * Scratch array the size of the arena, shared by its windows. A split
+     * only uses the window's own range, so disjoint subtrees can split
+     * concurrently.
+     */
+    private int[] arenaScratch;
+
+    /**
+     * Optional presorted order of this lens on selected Z columns:
+     * sortedIndex[k] holds the positions 0..n-1 of dataIndex ordered by
+     * z_k, or null if column k is not presorted. Child lenses inherit the
+     * order through a stable partition, so no node below the root sorts.
+     */
+    int[][] sortedIndex;
+
+    /**
+     * Optional per-category positions of this lens on selected discrete Z
+     * columns (null entries for the others). Child lenses restrict the
+     * parent's buckets instead of reading Z again.
+     */
+    CategoryBuckets[] categoryBuckets;
+
+    /**
+     * Optional quantile bins of the continuous Z columns, shared by every lens
+     * derived from this one.
+     */
+    BinnedZ binnedZ;
+
+    /**
+     * Optional bootstrap multiplicities of the backing rows (null if every
+     * observation counts once). A weighted lens holds each drawn row once and
+     * every lens split from it shares the multiplicities, so nodes index
+     * distinct rows and weighted consumers multiply by getWeight(i).
+     */
+    RowWeights rowWeights;
+    private int weightedNumObs = -1;
+
+    /**
+     * Stratum id of each row of the backing store and the number of strata,
+     * when strata columns are set.
+     */
+    private int[] strataId;
+    private int numStrata;
 
     //DataLens for original data
     public DataLens(Jama.Matrix X, Jama.Matrix Y, Jama.Matrix Z, Jama.Matrix balanceVector) {
-        originalDataX = X;
-        originalDataY = Y;
-        originalDataZ = Z;
-        strataColumnIndex = null;
-        balancingVector = balanceVector; // Is the balance vector specific to RCT and natural experiment settings?
-        dataIndex = new int[originalDataX.getRowDimension()];
-        for (int i = 0; i < originalDataX.getRowDimension(); i++) {
-            dataIndex[i] = i;
-        }
+        this(new HeapColumnStore(X, Y, Z), balanceVector, null); // Is the balance vector specific to RCT and natural experiment settings?
     }
 
     public DataLens(Jama.Matrix X, Jama.Matrix Y, Jama.Matrix Z, Jama.Matrix balanceVector, int[] strataColIndex) {
-        originalDataX = X;
-        originalDataY = Y;
-        originalDataZ = Z;
+        this(new HeapColumnStore(X, Y, Z), balanceVector, strataColIndex);
+    }
+
+    /**
+     * Lens on every row of an existing store, for example a
+     * MappedColumnStore opened on a columnar file.
+     *
+     * @param data Backing store
+     * @param balanceVector Balancing vector (null if none)
+     */
+    public DataLens(ColumnStore data, Jama.Matrix balanceVector) {
+        this(data, balanceVector, null);
+    }
+
+    public DataLens(ColumnStore data, Jama.Matrix balanceVector, int[] strataColIndex) {
+        this.data = data;
         balancingVector = balanceVector;
         strataColumnIndex = strataColIndex;
-        dataIndex = new int[originalDataX.getRowDimension()];
-        for (int i = 0; i < originalDataX.getRowDimension(); i++) {
+        dataIndex = new int[data.getNumRows()];
+        for (int i = 0; i < data.getNumRows(); i++) {
             dataIndex[i] = i;
         }
+        numObs = dataIndex.length;
+        if (strataColumnIndex != null && strataColumnIndex.length > 0) {
+            computeStrataIds();
+        }
     }
 
 //    public DataLens(Jama.Matrix X, Jama.Matrix Y, Jama.Matrix Z) {
@@ -84,40 +138,103 @@ public class DataLens {
     //Datalens for the resampled tree data or for a leaf once split
     //Does each leaf carry around the original data then an index of the observations currently in that leaf?
     public DataLens(DataLens d, int[] resampleIndex) {
-        originalDataX = d.getOriginalDataX();
-        originalDataY = d.getOriginalDataY();
-        originalDataZ = d.getOriginalDataZ();
+        data = d.data;
         balancingVector = d.getBalancingVector();
         strataColumnIndex = d.getStrataColumnIndex();
+        binnedZ = d.binnedZ;
+        rowWeights = d.rowWeights;
+        strataId = d.strataId;
+        numStrata = d.numStrata;
         dataIndex = new int[resampleIndex.length];
         for (int i = 0; i < resampleIndex.length; i++) {
             dataIndex[i] = resampleIndex[i];
         }
+        numObs = dataIndex.length;
+    }
+
+    /**
+     * Lens on the window [offset, offset + length) of an existing index
+     * array, which is shared rather than copied.
+     */
+    DataLens(DataLens d, int[] arena, int offset, int length) {
+        data = d.data;
+        balancingVector = d.balancingVector;
+        strataColumnIndex = d.strataColumnIndex;
+        binnedZ = d.binnedZ;
+        rowWeights = d.rowWeights;
+        strataId = d.strataId;
+        numStrata = d.numStrata;
+        dataIndex = arena;
+        this.offset = offset;
+        numObs = length;
     }
 
     //Gets a subset of the current datalens indexed by "observations"
     public DataLens getDataLensSubset(int[] observations) {
         int[] associatedBackingIndex = new int[observations.length];
         for (int i = 0; i < observations.length; i++) {
-            associatedBackingIndex[i] = dataIndex[observations[i]];
+            associatedBackingIndex[i] = dataIndex[offset + observations[i]];
         }
-        return new DataLens(this, associatedBackingIndex);
+        return new DataLens(this, associatedBackingIndex, 0, observations.length);
     }
 
-    private Matrix getOriginalDataX() {
-        return originalDataX;
+    /**
+     * Split for scoring a candidate: both sides are windows into one new
+     * index array, left rows first. The candidate's fits can outlive the
+     * search (the winning ones are handed to the children), so candidates
+     * do not write into the arena.
+     *
+     * @param positionsLeft Positions in this lens of the left observations
+     * @param positionsRight Positions in this lens of the right observations
+     * @return Left and right lenses, with their positions in this lens
+     */
+    SplitContainer getDataSplit(int[] positionsLeft, int[] positionsRight) {
+        int[] rows = new int[positionsLeft.length + positionsRight.length];
+        gatherRows(positionsLeft, positionsRight, rows, 0);
+        return new SplitContainer(new DataLens(this, rows, 0, positionsLeft.length), new DataLens(this, rows, positionsLeft.length, positionsRight.length),
+                positionsLeft, positionsRight);
     }
 
-    private Matrix getBalancingVector() {
-        return balancingVector;
+    /**
+     * Split taken by a node: rearrange this lens's window so that it holds
+     * the rows at positionsLeft followed by the rows at positionsRight, and
+     * return the two halves as windows into the same array. Nothing is
+     * copied into new index arrays and each node's rows stay contiguous.
+     *
+     * This lens keeps the same rows in the new order, so its presorted order
+     * and category buckets (which refer to the old positions) must be passed
+     * to the children and then cleared, as TreeMoment does. The index array
+     * must not be shared with a lens outside the tree.
+     *
+     * @param positionsLeft Positions in this lens of the left observations
+     * @param positionsRight Positions in this lens of the right observations
+     * @return Left and right lenses, with their positions in this lens
+     */
+    SplitContainer partitionInPlace(int[] positionsLeft, int[] positionsRight) {
+        if (arenaScratch == null) {
+            arenaScratch = new int[dataIndex.length];
+        }
+        gatherRows(positionsLeft, positionsRight, arenaScratch, offset);
+        System.arraycopy(arenaScratch, offset, dataIndex, offset, numObs);
+        DataLens left = new DataLens(this, dataIndex, offset, positionsLeft.length);
+        DataLens right = new DataLens(this, dataIndex, offset + positionsLeft.length, positionsRight.length);
+        left.arenaScratch = arenaScratch;
+        right.arenaScratch = arenaScratch;
+        return new SplitContainer(left, right, positionsLeft, positionsRight);
     }
 
-    private Matrix getOriginalDataY() {
-        return originalDataY;
+    private void gatherRows(int[] positionsLeft, int[] positionsRight, int[] target, int start) {
+        for (int i = 0; i < positionsLeft.length; i++) {
+            target[start + i] = dataIndex[offset + positionsLeft[i]];
+        }
+        start += positionsLeft.length;
+        for (int i = 0; i < positionsRight.length; i++) {
+            target[start + i] = dataIndex[offset + positionsRight[i]];
+        }
     }
 
-    private Matrix getOriginalDataZ() {
-        return originalDataZ;
+    private Matrix getBalancingVector() {
+        return balancingVector;
     }
 
     public int[] getStrataColumnIndex() {
@@ -128,18 +245,18 @@ public class DataLens {
     @Override
     public String toString() {
         StringBuilder s = new StringBuilder();
-        for (int i = 0; i < dataIndex.length; i++) {
-            s.append(dataIndex[i]);
+        for (int i = 0; i < numObs; i++) {
+            s.append(dataIndex[offset + i]);
             s.append(" ");
             s.append("{ ").append(getY(i)).append(" ");
-            for (int j = 0; j < originalDataX.getColumnDimension(); j++) {
+            for (int j = 0; j < getColumnDimensionX(); j++) {
                 s.append(getX(i, j)).append(" ");
             }
-            for (int j = 0; j < originalDataZ.getColumnDimension(); j++) {
+            for (int j = 0; j < getColumnDimensionZ(); j++) {
                 s.append(getZ(i, j)).append(" ");
             }
             if (balancingVector != null) {
-                s.append(balancingVector.get(dataIndex[i], 0)).append(" }\n");
+                s.append(balancingVector.get(dataIndex[offset + i], 0)).append(" }\n");
             }
         }
         return s.toString();
@@ -152,15 +269,16 @@ public class DataLens {
             System.exit(0);
         }
         double ratio = 0;
-        for (int i : dataIndex) {
-            ratio += balancingVector.get(i, 0);
+        for (int i = offset; i < offset + numObs; i++) {
+            ratio += balancingVector.get(dataIndex[i], 0);
         }
-        ratio /= dataIndex.length;
+        ratio /= numObs;
         return ratio;
     }
 
     //Performs the resampling for tree data, keeping the proportion of treated and untreated obs the same as in original data and returns the resulting datalense
     public DataLens getResampledDataLensWithBalance(long seed) {
+        requireUnweighted();
         if (balancingVector == null) {
             System.out.println("Trying to resample with average balancing vector when it is null.");
             new Exception().printStackTrace();
@@ -168,106 +286,147 @@ public class DataLens {
         }
         Random rng = new Random(seed);
         // int[] newIndex = new int[originalDataX.getRowDimension()];
-        int[] newIndex = new int[dataIndex.length];
+        int[] newIndex = new int[numObs];
 
         double ratio = getMeanBalancingVector();
-        int goalTreatment = (int) Math.round(ratio * dataIndex.length);
-
-        int countTreatment = 0;
-        for (int i = 0; i < dataIndex.length; i++) {
-            int index = rng.nextInt(dataIndex.length);
-            double treatmentIndicator = balancingVector.get(dataIndex[index], 0);
-            if (countTreatment < goalTreatment) {
-                while (treatmentIndicator == 0) { // Keep resampling until getting a treated obs
-                    index = rng.nextInt(dataIndex.length);
-                    treatmentIndicator = balancingVector.get(dataIndex[index], 0);
-                }
-                countTreatment++;
-            } else {
-                while (treatmentIndicator == 1) { // Now keep resampling until getting an untreated obs
-                    index = rng.nextInt(dataIndex.length);
-                    treatmentIndicator = balancingVector.get(dataIndex[index], 0);
-                }
-            }
-            newIndex[i] = index;
+        int goalTreatment = (int) Math.round(ratio * numObs);
+
+        /**
+         * Draw treated rows from the treated positions and the rest from the
+         * untreated positions directly, instead of redrawing until the
+         * treatment status matches
+         */
+        int[][] pools = getTreatmentPools();
+        for (int i = 0; i < numObs; i++) {
+            int[] pool = i < goalTreatment ? pools[1] : pools[0];
+            newIndex[i] = dataIndex[offset + pool[rng.nextInt(pool.length)]];
         }
         return new DataLens(this, newIndex);
     }
 
     //Performs the resampling for tree data without balancing treated and untreated; or if there is no treatment variable and returns the resulting datalens
     public DataLens getResampledDataLens(long seed) {
+        requireUnweighted();
         Random rng = new Random(seed);
-        int[] newIndex = new int[dataIndex.length];
-        for (int i = 0; i < dataIndex.length; i++) {
-            newIndex[i] = dataIndex[rng.nextInt(dataIndex.length)];
+        int[] newIndex = new int[numObs];
+        for (int i = 0; i < numObs; i++) {
+            newIndex[i] = dataIndex[offset + rng.nextInt(numObs)];
         }
         return new DataLens(this, newIndex);
     }
 
+    /**
+     * Same draws as getResampledDataLens(seed), kept as multiplicities: the
+     * returned lens holds each drawn row once, in backing-store order, and
+     * getWeight(i) gives how many times it was drawn. Per-node work and the
+     * index arrays held by the tree scale with the number of distinct rows
+     * (about 63% of n) instead of n, and the multiplicities (see RowWeights)
+     * add about a byte per drawn row, so the lens holds less than the n ints
+     * of getResampledDataLens.
+     *
+     * The draws are made twice from the same seed, once to mark the rows
+     * drawn and once to count them, so no per-row counter of size n is
+     * needed.
+     *
+     * @param seed Random number seed
+     * @return Weighted bootstrap lens
+     */
+    public DataLens getWeightedResampledDataLens(long seed) {
+        requireUnweighted();
+        long[] drawn = new long[(data.getNumRows() + 63) >>> 6];
+        Random rng = new Random(seed);
+        for (int i = 0; i < numObs; i++) {
+            int row = dataIndex[offset + rng.nextInt(numObs)];
+            drawn[row >>> 6] |= 1L << row;
+        }
+        RowWeights weights = new RowWeights(drawn);
+        rng = new Random(seed);
+        for (int i = 0; i < numObs; i++) {
+            weights.add(dataIndex[offset + rng.nextInt(numObs)]);
+        }
+        int[] rows = weights.getRows();
+        DataLens weighted = new DataLens(this, rows, 0, rows.length);
+        weighted.rowWeights = weights;
+        return weighted;
+    }
+
+    private void requireUnweighted() {
+        if (rowWeights != null) {
+            throw new IllegalStateException("Cannot resample a weighted lens; resample its unweighted source instead.");
+        }
+    }
+
     public DataLens getSubsampledDataLens(long seed, double d) {
+        if (rowWeights != null) {
+            return getWeightedSubsampledDataLens(seed, d);
+        }
         Random rng = new Random(seed);
-        int b = (int) Math.round(Math.pow(dataIndex.length, d));
+        int b = (int) Math.round(Math.pow(numObs, d));
+        int[] positions = getPositions();
+        partialShuffle(positions, 0, positions.length, b, rng);
         int[] newIndex = new int[b];
-        TreeSet<Integer> drawnTree = new TreeSet<>();
         for (int i = 0; i < b; i++) {
-            int candidate = rng.nextInt(dataIndex.length);
-            while (drawnTree.contains(candidate)) {
-                candidate = rng.nextInt(dataIndex.length);
-            }
-            newIndex[i] = dataIndex[candidate];
-            drawnTree.add(candidate);
+            newIndex[i] = dataIndex[offset + positions[i]];
         }
         return new DataLens(this, newIndex);
     }
 
+    /**
+     * Subsample of a weighted lens, drawn without replacement over the
+     * observations it stands for: a row drawn k times by the bootstrap is in
+     * the pool k times, so the subsample size is round(getWeightedNumObs()^d)
+     * and a row can be drawn up to k times. Such rows are repeated in the
+     * returned lens, which is unweighted (as a bootstrap lens was before
+     * weights), since it is only estimated on and then dropped.
+     */
+    private DataLens getWeightedSubsampledDataLens(long seed, double d) {
+        Random rng = new Random(seed);
+        int total = getWeightedNumObs();
+        int b = (int) Math.round(Math.pow(total, d));
+        int[] pool = new int[total];
+        int counter = 0;
+        for (int i = 0; i < numObs; i++) {
+            int row = dataIndex[offset + i];
+            for (int k = getWeight(i); k > 0; k--) {
+                pool[counter] = row;
+                counter++;
+            }
+        }
+        partialShuffle(pool, 0, total, b, rng);
+        DataLens subsample = new DataLens(this, pool, 0, b);
+        subsample.rowWeights = null;
+        return subsample;
+    }
+
     //Randomly splits the data into the growing and estimating samples and return them
     //Input is the randomly resampled data
     //Output is a datalens vector containing the datalens for each sample
     public DataLens[] randomlySplitSampleWithBalance(double proportionFirstSample, long seed) {
         Random rng = new Random(seed);
         DataLens[] splitLens = new DataLens[2]; // the two parts of the split sample
-        int sizeFirst = (int) Math.round(proportionFirstSample * dataIndex.length); //Number of obs going to growing sample
-        int sizeSecond = dataIndex.length - sizeFirst;
+        int sizeFirst = (int) Math.round(proportionFirstSample * numObs); //Number of obs going to growing sample
+        int sizeSecond = numObs - sizeFirst;
 
         int[] indicesFirst = new int[sizeFirst];
         int[] indicesSecond = new int[sizeSecond];
 
-        int countTreatmentFirst = 0;
-        TreeSet<Integer> treeFirst = new TreeSet<>(); //Why do we use this TreeSet?
-
         int desiredNumTreatmentObsInFirstPart = (int) Math.round(getMeanBalancingVector() * sizeFirst);
         // System.out.println("Aiming for " + desiredNumTreatmentObsInFirstPart + " treatments in first sample.");
-        for (int i = 0; i < sizeFirst; i++) {
-            int guess = rng.nextInt(getNumObs());
-            double treatmentStatus = balancingVector.get(dataIndex[guess], 0);
-            if (countTreatmentFirst < desiredNumTreatmentObsInFirstPart) {
-                while (treatmentStatus == 0 || treeFirst.contains(guess)) {
-                    guess = rng.nextInt(getNumObs());
-                    treatmentStatus = balancingVector.get(dataIndex[guess], 0);
-                }
-                treeFirst.add(guess);
-                countTreatmentFirst++;
-            } else {
-                while (treatmentStatus == 1 || treeFirst.contains(guess)) {
-                    guess = rng.nextInt(getNumObs());
-                    treatmentStatus = balancingVector.get(dataIndex[guess], 0);
-                }
-                treeFirst.add(guess);
-            }
+        int[][] pools = getTreatmentPools();
+        if (desiredNumTreatmentObsInFirstPart > pools[1].length || sizeFirst - desiredNumTreatmentObsInFirstPart > pools[0].length) {
+            throw new IllegalStateException("Cannot draw " + desiredNumTreatmentObsInFirstPart + " treated and " + (sizeFirst - desiredNumTreatmentObsInFirstPart)
+                    + " untreated observations from " + pools[1].length + " treated and " + pools[0].length + " untreated.");
         }
-        ArrayList<Integer> firstList = new ArrayList(treeFirst);
-        // System.out.println(firstList.size() + " out of desired " + sizeFirst);
-        for (int i = 0; i < sizeFirst; i++) {
-            indicesFirst[i] = dataIndex[firstList.get(i)];
+        partialShuffle(pools[1], 0, pools[1].length, desiredNumTreatmentObsInFirstPart, rng);
+        partialShuffle(pools[0], 0, pools[0].length, sizeFirst - desiredNumTreatmentObsInFirstPart, rng);
+        boolean[] inFirst = new boolean[numObs];
+        for (int i = 0; i < desiredNumTreatmentObsInFirstPart; i++) {
+            inFirst[pools[1][i]] = true;
         }
-
-        int secondCounter = 0;
-        for (int i = 0; i < getNumObs(); i++) {
-            if (!treeFirst.contains(i)) {
-                indicesSecond[secondCounter] = dataIndex[i];
-                secondCounter++;
-            }
+        for (int i = 0; i < sizeFirst - desiredNumTreatmentObsInFirstPart; i++) {
+            inFirst[pools[0][i]] = true;
         }
+        fillSplit(inFirst, indicesFirst, indicesSecond);
 
         splitLens[0] = new DataLens(this, indicesFirst); //Creates resampled datalens for growing tree
         splitLens[1] = new DataLens(this, indicesSecond); //Creates resampled datalens for estimating tree
@@ -288,34 +447,19 @@ public class DataLens {
     public DataLens[] randomlySplitSample(double proportionFirstSample, long seed) {
         Random rng = new Random(seed);
         DataLens[] splitLens = new DataLens[2]; // the two parts of the split sample
-        int sizeFirst = (int) Math.round(proportionFirstSample * dataIndex.length); //Number of obs going to first sample
-        int sizeSecond = dataIndex.length - sizeFirst;
+        int sizeFirst = (int) Math.round(proportionFirstSample * numObs); //Number of obs going to first sample
+        int sizeSecond = numObs - sizeFirst;
 
         int[] indicesFirst = new int[sizeFirst];
         int[] indicesSecond = new int[sizeSecond];
 
-        TreeSet<Integer> treeFirst = new TreeSet<>(); // this keeps track of which indices are in the first sample
-
-        for (int i = 0; i < sizeFirst; i++) {
-            int guess = rng.nextInt(getNumObs());
-            while (treeFirst.contains(guess)) {
-                guess = rng.nextInt(getNumObs());
-            }
-            treeFirst.add(guess);
-        }
-        ArrayList<Integer> firstList = new ArrayList(treeFirst);
-        // System.out.println(firstList.size() + " out of desired " + sizeFirst);
+        int[] positions = getPositions();
+        partialShuffle(positions, 0, positions.length, sizeFirst, rng);
+        boolean[] inFirst = new boolean[numObs]; // which positions are in the first sample
         for (int i = 0; i < sizeFirst; i++) {
-            indicesFirst[i] = dataIndex[firstList.get(i)];
-        }
-
-        int secondCounter = 0;
-        for (int i = 0; i < getNumObs(); i++) {
-            if (!treeFirst.contains(i)) {
-                indicesSecond[secondCounter] = dataIndex[i];
-                secondCounter++;
-            }
+            inFirst[positions[i]] = true;
         }
+        fillSplit(inFirst, indicesFirst, indicesSecond);
 
         splitLens[0] = new DataLens(this, indicesFirst); //Creates resampled datalens for growing tree
         splitLens[1] = new DataLens(this, indicesSecond); //Creates resampled datalens for estimating tree
@@ -339,31 +483,44 @@ public class DataLens {
         }
 
         Random rng = new Random(seed);
-        ArrayList<Integer> indicesFirstList = new ArrayList<>();
-        ArrayList<Integer> indicesSecondList = new ArrayList<>();
-
-        // Group observations by combined strata key
-        Map<String, List<Integer>> strataGroups = new HashMap<>();
-        for (int obsIndex : dataIndex) {
-            String key = buildStrataKey(obsIndex, strataColumnIndex);
-            List<Integer> group = strataGroups.get(key);
-            if (group == null) {
-                group = new ArrayList<>();
-                strataGroups.put(key, group);
-            }
-            group.add(obsIndex);
+
+        // Bucket positions by stratum (counting sort on the precomputed ids)
+        int[] start = new int[numStrata + 1];
+        for (int i = offset; i < offset + numObs; i++) {
+            start[strataId[dataIndex[i]] + 1]++;
+        }
+        for (int g = 0; g < numStrata; g++) {
+            start[g + 1] += start[g];
+        }
+        int[] grouped = new int[numObs];
+        int[] fill = Arrays.copyOf(start, numStrata);
+        for (int i = offset; i < offset + numObs; i++) {
+            int row = dataIndex[i];
+            grouped[fill[strataId[row]]++] = row;
         }
 
-        // Split within each group
-        for (List<Integer> group : strataGroups.values()) {
-            Collections.shuffle(group, rng);
-            int cutoff = (int) Math.round(group.size() * proportionFirstSample);
-            indicesFirstList.addAll(group.subList(0, cutoff));
-            indicesSecondList.addAll(group.subList(cutoff, group.size()));
+        // Split within each stratum
+        int sizeFirst = 0;
+        int[] cutoff = new int[numStrata];
+        for (int g = 0; g < numStrata; g++) {
+            cutoff[g] = (int) Math.round((start[g + 1] - start[g]) * proportionFirstSample);
+            partialShuffle(grouped, start[g], start[g + 1], cutoff[g], rng);
+            sizeFirst += cutoff[g];
         }
 
-        int[] indicesFirst = indicesFirstList.stream().mapToInt(Integer::intValue).toArray();
-        int[] indicesSecond = indicesSecondList.stream().mapToInt(Integer::intValue).toArray();
+        int[] indicesFirst = new int[sizeFirst];
+        int[] indicesSecond = new int[numObs - sizeFirst];
+        int firstCounter = 0;
+        int secondCounter = 0;
+        for (int g = 0; g < numStrata; g++) {
+            for (int i = start[g]; i < start[g + 1]; i++) {
+                if (i < start[g] + cutoff[g]) {
+                    indicesFirst[firstCounter++] = grouped[i];
+                } else {
+                    indicesSecond[secondCounter++] = grouped[i];
+                }
+            }
+        }
 
         DataLens[] splitLens = new DataLens[2];
         splitLens[0] = new DataLens(this, indicesFirst);
@@ -371,12 +528,127 @@ public class DataLens {
         return splitLens;
     }
 
-    private String buildStrataKey(int obsIndex, int[] strataColumnIndices) {
-        StringBuilder sb = new StringBuilder();
-        for (int col : strataColumnIndices) {
-            sb.append(originalDataZ.get(obsIndex, col)).append("_");
+    /**
+     * Integer stratum id of every row of the backing store: the distinct
+     * combinations of the strata columns, numbered in lexicographic order.
+     * Computed once when the lens is built and shared by derived lenses.
+     */
+    private void computeStrataIds() {
+        int n = data.getNumRows();
+        long[] key = new long[n];
+        long numKeys = 1;
+        double[] column = new double[n];
+        for (int col : strataColumnIndex) {
+            for (int row = 0; row < n; row++) {
+                column[row] = data.getZ(row, col);
+            }
+            double[] levels = distinct(column);
+            for (int row = 0; row < n; row++) {
+                key[row] = key[row] * levels.length + Arrays.binarySearch(levels, column[row]);
+            }
+            numKeys *= levels.length;
+            if (numKeys > Integer.MAX_VALUE) {
+                // renumber the combinations seen so far before the key can overflow
+                numKeys = renumber(key);
+            }
+        }
+        numStrata = (int) renumber(key);
+        strataId = new int[n];
+        for (int row = 0; row < n; row++) {
+            strataId[row] = (int) key[row];
+        }
+    }
+
+    private static double[] distinct(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || Double.compare(sorted[i], sorted[count - 1]) != 0) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, count);
+    }
+
+    /**
+     * Replace each key by its rank among the distinct keys.
+     *
+     * @return Number of distinct keys
+     */
+    private static long renumber(long[] key) {
+        long[] sorted = key.clone();
+        Arrays.sort(sorted);
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[count - 1]) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        for (int i = 0; i < key.length; i++) {
+            key[i] = Arrays.binarySearch(sorted, 0, count, key[i]);
+        }
+        return count;
+    }
+
+    /**
+     * @return Positions 0..n-1 of this lens, to be shuffled
+     */
+    private int[] getPositions() {
+        int[] positions = new int[numObs];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = i;
+        }
+        return positions;
+    }
+
+    /**
+     * Partial Fisher-Yates shuffle: afterwards a[from..from+k) is a uniform
+     * random draw without replacement from a[from..to), in random order.
+     */
+    private static void partialShuffle(int[] a, int from, int to, int k, Random rng) {
+        for (int i = from; i < from + k; i++) {
+            int j = i + rng.nextInt(to - i);
+            int swap = a[i];
+            a[i] = a[j];
+            a[j] = swap;
+        }
+    }
+
+    /**
+     * @return Positions of the untreated (index 0) and treated (index 1)
+     * observations in this lens
+     */
+    private int[][] getTreatmentPools() {
+        int numTreated = 0;
+        for (int i = offset; i < offset + numObs; i++) {
+            if (balancingVector.get(dataIndex[i], 0) == 1) {
+                numTreated++;
+            }
+        }
+        int[][] pools = new int[][]{new int[numObs - numTreated], new int[numTreated]};
+        int[] counter = new int[2];
+        for (int i = 0; i < numObs; i++) {
+            int t = balancingVector.get(dataIndex[offset + i], 0) == 1 ? 1 : 0;
+            pools[t][counter[t]++] = i;
+        }
+        return pools;
+    }
+
+    /**
+     * Rows of the marked positions in lens order go to first, the rest to
+     * second.
+     */
+    private void fillSplit(boolean[] inFirst, int[] first, int[] second) {
+        int firstCounter = 0;
+        int secondCounter = 0;
+        for (int i = 0; i < numObs; i++) {
+            if (inFirst[i]) {
+                first[firstCounter++] = dataIndex[offset + i];
+            } else {
+                second[secondCounter++] = dataIndex[offset + i];
+            }
         }
-        return sb.toString();
     }
 
     /**
@@ -385,52 +657,92 @@ public class DataLens {
      * @return Number of observations.
      */
     public int getNumObs() {
-        return dataIndex.length;
+        return numObs;
+    }
+
+    /**
+     * @param i Observation in this lens
+     * @return how many times the observation was drawn (1 for an unweighted
+     * lens)
+     */
+    public int getWeight(int i) {
+        return rowWeights == null ? 1 : rowWeights.get(dataIndex[offset + i]);
+    }
+
+    /**
+     * @return the sample size the observations in this lens represent: the
+     * sum of their weights, or getNumObs() for an unweighted lens
+     */
+    public int getWeightedNumObs() {
+        if (rowWeights == null) {
+            return numObs;
+        }
+        if (weightedNumObs < 0) {
+            int sum = 0;
+            for (int i = offset; i < offset + numObs; i++) {
+                sum += rowWeights.get(dataIndex[i]);
+            }
+            weightedNumObs = sum;
+        }
+        return weightedNumObs;
+    }
+
+    public boolean isWeighted() {
+        return rowWeights != null;
     }
 
     public Jama.Matrix getX() {
-        // generate a new matrix using the dataIndex
-        Jama.Matrix tempX = new Jama.Matrix(getNumObs(), getColumnDimensionX());
-        for (int i = 0; i < getNumObs(); i++) {
-            for (int j = 0; j < getColumnDimensionX(); j++) {
-                tempX.set(i, j, originalDataX.get(dataIndex[i], j));
+        // generate a new matrix using the dataIndex, one backing column at a time
+        double[][] tempX = new double[getNumObs()][getColumnDimensionX()];
+        for (int j = 0; j < getColumnDimensionX(); j++) {
+            for (int i = 0; i < getNumObs(); i++) {
+                tempX[i][j] = data.getX(dataIndex[offset + i], j);
             }
         }
-        return tempX;
+        return new Jama.Matrix(tempX, getNumObs(), getColumnDimensionX());
     }
 
     public Jama.Matrix getZ() {
-        // generate a new matrix using the dataIndex
-        Jama.Matrix tempZ = new Jama.Matrix(getNumObs(), getColumnDimensionZ());
-        for (int i = 0; i < getNumObs(); i++) {
-            for (int j = 0; j < getColumnDimensionZ(); j++) {
-                tempZ.set(i, j, originalDataZ.get(dataIndex[i], j));
+        // generate a new matrix using the dataIndex, one backing column at a time
+        double[][] tempZ = new double[getNumObs()][getColumnDimensionZ()];
+        for (int j = 0; j < getColumnDimensionZ(); j++) {
+            for (int i = 0; i < getNumObs(); i++) {
+                tempZ[i][j] = data.getZ(dataIndex[offset + i], j);
             }
         }
-        return tempZ;
+        return new Jama.Matrix(tempZ, getNumObs(), getColumnDimensionZ());
     }
 
     public double getZ(int i, int j) {
-        return originalDataZ.get(dataIndex[i], j);
+        return data.getZ(dataIndex[offset + i], j);
+    }
+
+    /**
+     * @param i Observation in this lens
+     * @param j Discrete Z column
+     * @return Integer category of z_ij
+     */
+    public int getCategory(int i, int j) {
+        return data.getCategory(dataIndex[offset + i], j);
     }
 
     public Jama.Matrix getY() {
         // generate a new matrix using the dataIndex
-        Jama.Matrix tempY = new Jama.Matrix(getNumObs(), 1);
+        double[][] tempY = new double[getNumObs()][1];
         for (int i = 0; i < getNumObs(); i++) {
-            tempY.set(i, 0, originalDataY.get(dataIndex[i], 0));
+            tempY[i][0] = data.getY(dataIndex[offset + i]);
         }
-        return tempY;
+        return new Jama.Matrix(tempY, getNumObs(), 1);
     }
 
     public int getColumnDimensionX() {
         // System.out.println("Getting column dimension");
-        return originalDataX.getColumnDimension();
+        return data.getNumColumnsX();
     }
 
     public int getColumnDimensionZ() {
         // System.out.println("Getting column dimension");
-        return originalDataZ.getColumnDimension();
+        return data.getNumColumnsZ();
     }
 
     public DataLens getSubsetData(int rowStart, int rowEnd) {
@@ -438,30 +750,352 @@ public class DataLens {
         int[] subIndex = new int[rowEnd - rowStart + 1];
         int counter = 0;
         for (int i = rowStart; i <= rowEnd; i++) {
-            subIndex[counter] = dataIndex[i];
+            subIndex[counter] = dataIndex[offset + i];
             counter++;
         }
         return new DataLens(this, subIndex);
     }
 
     public double getY(int i) {
-        return originalDataY.get(dataIndex[i], 0);
+        return data.getY(dataIndex[offset + i]);
     }
 
     public double getX(int i, int j) {
-        return originalDataX.get(dataIndex[i], j);
+        return data.getX(dataIndex[offset + i], j);
+    }
+
+    /**
+     * X'X accumulated straight from the backing columns, so a container can
+     * fit itself without first copying its n by p design matrix. Sums run
+     * over observations in lens order, which gives the same result as
+     * (getX().transpose()).times(getX()). Each observation is counted
+     * getWeight(i) times.
+     *
+     * @return p by p cross product of X
+     */
+    public Jama.Matrix getXtX() {
+        int p = getColumnDimensionX();
+        double[][] xtx = new double[p][p];
+        for (int a = 0; a < p; a++) {
+            for (int b = 0; b <= a; b++) {
+                double s = 0;
+                for (int i = 0; i < numObs; i++) {
+                    s += getWeight(i) * data.getX(dataIndex[offset + i], a) * data.getX(dataIndex[offset + i], b);
+                }
+                xtx[a][b] = s;
+                xtx[b][a] = s;
+            }
+        }
+        return new Jama.Matrix(xtx, p, p);
+    }
+
+    /**
+     * @return p by 1 cross product X'Y, accumulated like getXtX()
+     */
+    public Jama.Matrix getXtY() {
+        int p = getColumnDimensionX();
+        double[][] xty = new double[p][1];
+        for (int a = 0; a < p; a++) {
+            double s = 0;
+            for (int i = 0; i < numObs; i++) {
+                s += getWeight(i) * data.getX(dataIndex[offset + i], a) * data.getY(dataIndex[offset + i]);
+            }
+            xty[a][0] = s;
+        }
+        return new Jama.Matrix(xty, p, 1);
+    }
+
+    /**
+     * Least squares of Y on X for this lens, accumulated and solved in the
+     * calling thread's LeastSquaresWorkspace (Cholesky, with a pivoted QR
+     * fallback when X'X is ill-conditioned). Nothing of size n is copied.
+     *
+     * @return p by 1 OLS coefficients
+     * @throws RuntimeException if X'X is singular
+     */
+    public Jama.Matrix getOLS() {
+        LeastSquaresWorkspace ws = LeastSquaresWorkspace.forThread(getColumnDimensionX());
+        ws.setMinimumNorm(false);
+        ws.accumulate(this);
+        return ws.getBetaMatrix();
+    }
+
+    /**
+     * Closed-form least squares with some coefficients held fixed: regress
+     * y - X_h beta_h on the free columns of X, accumulating the normal
+     * equations of the free columns directly (see getOLS()). If the free
+     * columns are collinear in this lens (a dummy that is constant within a
+     * node, say) the minimum-norm solution is returned, as pmUtility.OLSsvd
+     * gave before, rather than failing the node.
+     *
+     * @param fixed fixed[k] is true if coefficient k is held at
+     * fixedValues(k)
+     * @param fixedValues p by 1 vector of the fixed coefficients (entries
+     * for free columns are ignored)
+     * @return Coefficients on the free columns, in column order
+     */
+    public Jama.Matrix getPartialledOLS(boolean[] fixed, Jama.Matrix fixedValues) {
+        int numFree = 0;
+        for (int k = 0; k < getColumnDimensionX(); k++) {
+            if (!fixed[k]) {
+                numFree++;
+            }
+        }
+        if (numFree == 0) {
+            return new Jama.Matrix(0, 1);
+        }
+        LeastSquaresWorkspace ws = LeastSquaresWorkspace.forThread(numFree);
+        ws.setMinimumNorm(true);
+        ws.accumulate(this, fixed, fixedValues);
+        return ws.getBetaMatrix();
+    }
+
+    /**
+     * @param i Observation in this lens
+     * @param beta p by 1 parameter vector
+     * @return x_i'beta, summed in the same order as getX().times(beta)
+     */
+    public double getFittedValue(int i, Jama.Matrix beta) {
+        int row = dataIndex[offset + i];
+        double s = 0;
+        for (int k = 0; k < getColumnDimensionX(); k++) {
+            s += data.getX(row, k) * beta.get(k, 0);
+        }
+        return s;
     }
 
     public Jama.Matrix getRowX(int row) {
-        return originalDataX.getMatrix(dataIndex[row], dataIndex[row], 0, originalDataX.getColumnDimension() - 1);
+        return getRowXAsJamaMatrix(row);
     }
 
     public Jama.Matrix getRowZ(int row) {
-        return originalDataZ.getMatrix(dataIndex[row], dataIndex[row], 0, originalDataZ.getColumnDimension() - 1);
+        return getRowZAsJamaMatrix(row);
+    }
+
+    /**
+     * @return the backing store shared by this lens and every lens cut from
+     * the same sample
+     */
+    public ColumnStore getColumnStore() {
+        return data;
+    }
+
+    /**
+     * @return positions in the backing store of the observations in this
+     * lens (a copy of its window)
+     */
+    public int[] getDataIndex() {
+        return Arrays.copyOfRange(dataIndex, offset, offset + numObs);
+    }
+
+    /**
+     * Quantize the given Z columns into at most maxBins quantile bins, placed
+     * on the observations in this lens. The returned lens (and every lens
+     * resampled or split from it) shares the bin codes.
+     *
+     * @param maxBins Maximum number of bins per column
+     * @param columns Z columns to quantize
+     * @return Lens over the same observations carrying the bins
+     */
+    public DataLens getBinnedDataLens(int maxBins, int[] columns) {
+        DataLens binned = new DataLens(this, getDataIndex(), 0, numObs);
+        binned.binnedZ = new BinnedZ(data, binned.dataIndex, columns, maxBins);
+        return binned;
+    }
+
+    public BinnedZ getBinnedZ() {
+        return binnedZ;
+    }
+
+    /**
+     * @param i Observation in this lens
+     * @param j Z column
+     * @return Bin code of z_ij
+     */
+    public int getZBin(int i, int j) {
+        return binnedZ.getBin(dataIndex[offset + i], j);
+    }
+
+    /**
+     * Sort the observations on each of the given Z columns once. Children
+     * created through SplitContainer inherit the order.
+     *
+     * @param columns Indices of the Z columns to presort
+     */
+    public void presort(int[] columns) {
+        sortedIndex = new int[getColumnDimensionZ()][];
+        for (int k : columns) {
+            final int col = k;
+            Integer[] order = new Integer[getNumObs()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(getZ(a, col), getZ(b, col)));
+            sortedIndex[k] = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                sortedIndex[k][i] = order[i];
+            }
+        }
+    }
+
+    /**
+     * @param column Z column
+     * @return Positions in this lens sorted on z_column, or null if the column
+     * is not presorted
+     */
+    public int[] getSortedIndex(int column) {
+        if (sortedIndex == null) {
+            return null;
+        }
+        return sortedIndex[column];
+    }
+
+    /**
+     * Derive the presorted order of this lens from a parent lens.
+     *
+     * @param parent Lens this one was cut from
+     * @param positions positions[i] is the position in the parent of
+     * observation i in this lens
+     */
+    void inheritSortedIndex(DataLens parent, int[] positions) {
+        if (parent.sortedIndex == null) {
+            return;
+        }
+        int[] parentToChild = new int[parent.getNumObs()];
+        Arrays.fill(parentToChild, -1);
+        for (int i = 0; i < positions.length; i++) {
+            parentToChild[positions[i]] = i;
+        }
+        sortedIndex = new int[parent.sortedIndex.length][];
+        for (int k = 0; k < sortedIndex.length; k++) {
+            if (parent.sortedIndex[k] != null) {
+                int[] childOrder = new int[positions.length];
+                int counter = 0;
+                for (int parentPosition : parent.sortedIndex[k]) {
+                    if (parentToChild[parentPosition] >= 0) {
+                        childOrder[counter] = parentToChild[parentPosition];
+                        counter++;
+                    }
+                }
+                sortedIndex[k] = childOrder;
+            }
+        }
+    }
+
+    /**
+     * Drop the presorted order once it is no longer needed (after the node's
+     * children have inherited it).
+     */
+    public void clearSortedIndex() {
+        sortedIndex = null;
+    }
+
+    /**
+     * Group the observations by category on each of the given discrete Z
+     * columns. Children created through SplitContainer inherit the buckets.
+     *
+     * @param columns Indices of the discrete Z columns to index
+     */
+    public void indexCategories(int[] columns) {
+        categoryBuckets = new CategoryBuckets[getColumnDimensionZ()];
+        for (int k : columns) {
+            categoryBuckets[k] = CategoryBuckets.build(this, k);
+        }
+    }
+
+    /**
+     * @param column Z column
+     * @return Buckets of this lens on z_column, or null if the column is not
+     * indexed
+     */
+    public CategoryBuckets getCategoryBuckets(int column) {
+        if (categoryBuckets == null) {
+            return null;
+        }
+        return categoryBuckets[column];
+    }
+
+    /**
+     * Derive the category buckets of this lens from a parent lens.
+     *
+     * @param parent Lens this one was cut from
+     * @param positions positions[i] is the position in the parent of
+     * observation i in this lens
+     */
+    void inheritCategoryBuckets(DataLens parent, int[] positions) {
+        if (parent.categoryBuckets == null) {
+            return;
+        }
+        int[] parentToChild = new int[parent.getNumObs()];
+        Arrays.fill(parentToChild, -1);
+        for (int i = 0; i < positions.length; i++) {
+            parentToChild[positions[i]] = i;
+        }
+        categoryBuckets = new CategoryBuckets[parent.categoryBuckets.length];
+        for (int k = 0; k < categoryBuckets.length; k++) {
+            if (parent.categoryBuckets[k] != null) {
+                categoryBuckets[k] = parent.categoryBuckets[k].restrict(parentToChild);
+            }
+        }
+    }
+
+    /**
+     * Drop the category buckets once the node's children have inherited them.
+     */
+    public void clearCategoryBuckets() {
+        categoryBuckets = null;
+    }
+
+    /**
+     * Split an indexed discrete column by concatenating each side's buckets.
+     *
+     * @param column Discrete Z column (must be indexed)
+     * @param partition Bipartition of its categories
+     * @return Left and right lenses, with their positions in this lens
+     */
+    SplitContainer getPartitionSplit(int column, IntegerPartition partition) {
+        int[][] positions = categoryBuckets[column].split(partition);
+        return getDataSplit(positions[0], positions[1]);
+    }
+
+    /**
+     * Positions in this lens of the observations on each side of a partition
+     * of a discrete column, read from its category buckets when it is
+     * indexed.
+     *
+     * @param column Discrete Z column
+     * @param partition Bipartition of its categories
+     * @return Positions on the left and on the right
+     */
+    int[][] getPartitionPositions(int column, IntegerPartition partition) {
+        if (getCategoryBuckets(column) != null) {
+            return categoryBuckets[column].split(partition);
+        }
+        int countLeft = 0;
+        for (int i = 0; i < numObs; i++) {
+            if (partition.isLeft(getCategory(i, column))) {
+                countLeft++;
+            }
+        }
+        int[][] positions = {new int[countLeft], new int[numObs - countLeft]};
+        int left = 0;
+        int right = 0;
+        for (int i = 0; i < numObs; i++) {
+            if (partition.isLeft(getCategory(i, column))) {
+                positions[0][left++] = i;
+            } else {
+                positions[1][right++] = i;
+            }
+        }
+        return positions;
     }
 
     //Returns the minimum value of the split variable
     double getMinimumValue(int indexSplitVariable) {
+        int[] sorted = getSortedIndex(indexSplitVariable);
+        if (sorted != null) {
+            return getZ(sorted[0], indexSplitVariable);
+        }
         double minimumValue = getZ(0, indexSplitVariable);
         for (int i = 1; i < getNumObs(); i++) {
             double v = getZ(i, indexSplitVariable);
@@ -473,6 +1107,10 @@ public class DataLens {
     }
 
     double getMaximumValue(int indexSplitVariable) {
+        int[] sorted = getSortedIndex(indexSplitVariable);
+        if (sorted != null) {
+            return getZ(sorted[sorted.length - 1], indexSplitVariable);
+        }
         double maximumValue = getZ(0, indexSplitVariable);
         for (int i = 1; i < getNumObs(); i++) {
             double v = getZ(i, indexSplitVariable);
@@ -484,16 +1122,16 @@ public class DataLens {
     }
 
     Matrix getRowXAsJamaMatrix(int i) {
-        Jama.Matrix rowX = new Jama.Matrix(1, originalDataX.getColumnDimension());
-        for (int j = 0; j < originalDataX.getColumnDimension(); j++) {
+        Jama.Matrix rowX = new Jama.Matrix(1, getColumnDimensionX());
+        for (int j = 0; j < getColumnDimensionX(); j++) {
             rowX.set(0, j, getX(i, j));
         }
         return rowX;
     }
 
     Matrix getRowZAsJamaMatrix(int i) {
-        Jama.Matrix rowZ = new Jama.Matrix(1, originalDataZ.getColumnDimension());
-        for (int j = 0; j < originalDataZ.getColumnDimension(); j++) {
+        Jama.Matrix rowZ = new Jama.Matrix(1, getColumnDimensionZ());
+        for (int j = 0; j < getColumnDimensionZ(); j++) {
             rowZ.set(0, j, getZ(i, j));
         }
         return rowZ;
@@ -502,26 +1140,30 @@ public class DataLens {
     //Performs the splitting of the data based on the optimal splitting rule and returns the datalens for each leaf
     DataLens[] splitOnRule(SplitRule rule) {
         DataLens[] split = new DataLens[2];
-        ArrayList<Integer> leftList = new ArrayList<>();
-        ArrayList<Integer> rightList = new ArrayList<>();
-        for (int i = 0; i < getNumObs(); i++) {
+        /**
+         * Left rows fill one array from the front and right rows from the
+         * back; reversing the back keeps both sides in lens order
+         */
+        int[] rows = new int[numObs];
+        int countLeft = 0;
+        int countRight = 0;
+        for (int i = 0; i < numObs; i++) {
             Jama.Matrix zi = getRowZAsJamaMatrix(i);
             if (rule.isLeft(zi)) {
-                leftList.add(dataIndex[i]);
+                rows[countLeft] = dataIndex[offset + i];
+                countLeft++;
             } else {
-                rightList.add(dataIndex[i]);
+                countRight++;
+                rows[numObs - countRight] = dataIndex[offset + i];
             }
         }
-        int[] leftIndices = new int[leftList.size()];
-        int[] rightIndices = new int[rightList.size()];
-        for (int i = 0; i < leftList.size(); i++) {
-            leftIndices[i] = leftList.get(i);
-        }
-        for (int i = 0; i < rightList.size(); i++) {
-            rightIndices[i] = rightList.get(i);
+        for (int a = countLeft, b = numObs - 1; a < b; a++, b--) {
+            int swap = rows[a];
+            rows[a] = rows[b];
+            rows[b] = swap;
         }
-        split[0] = new DataLens(this, leftIndices);
-        split[1] = new DataLens(this, rightIndices);
+        split[0] = new DataLens(this, rows, 0, countLeft);
+        split[1] = new DataLens(this, rows, countLeft, countRight);
         return split;
     }
 
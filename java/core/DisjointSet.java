@@ -23,9 +23,13 @@
  */
 package core;
 
-import Jama.Matrix;
 import java.util.ArrayList;
-import java.util.TreeSet;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  *
@@ -53,140 +57,204 @@ public class DisjointSet {
         // System.out.println(partition);
     }
 
+    /**
+     * Bipartition masks already enumerated, keyed by the number of elements.
+     * Only the masks are kept (2^(m-1)-1 longs for m elements, one array per
+     * size), so the cache is bounded by the largest category count seen and
+     * does not grow with the number of distinct category sets.
+     */
+    private static final ConcurrentHashMap<Integer, long[]> maskCache = new ConcurrentHashMap<>();
+
+    /**
+     * Every bipartition of parent into two non-empty groups, each listed
+     * once. The tree scores partitions from getBipartitionMasks and builds
+     * only the winner; this list is for callers that want them all.
+     *
+     * @param parent Elements to partition
+     * @return The bipartitions, in the order of bipartitionMasks
+     */
     public static ArrayList<IntegerPartition> computeAllDisjointSets(ArrayList<Integer> parent) {
-        Jama.Matrix binaryCounter = new Jama.Matrix(parent.size(), 1, 0);
+        long[] masks = getBipartitionMasks(parent.size());
+        ArrayList<IntegerPartition> results = new ArrayList<>(masks.length);
+        for (long mask : masks) {
+            results.add(getPartition(parent, mask));
+        }
+        return results;
+    }
 
-        ArrayList<Jama.Matrix> binaryEnumeration = new ArrayList<>();
-        count(binaryCounter, 0, binaryEnumeration);
+    /**
+     * The masks of bipartitionMasks(numElements) as an array, enumerated once
+     * per size and shared, so the caller must not modify it.
+     *
+     * @param numElements Number of elements
+     * @return Bitmasks of the first group of each bipartition
+     * @throws IllegalArgumentException if there are too many bipartitions to
+     * hold in an array
+     */
+    public static long[] getBipartitionMasks(int numElements) {
+        return maskCache.computeIfAbsent(numElements, DisjointSet::enumerateMasks);
+    }
 
-        ArrayList<IntegerPartition> results = new ArrayList<>();
-        TreeSet<String> subsetTree = new TreeSet<>();
+    /**
+     * @param parent Elements being partitioned
+     * @param mask Bit i set when parent.get(i) is in the first group
+     * @return The bipartition, with the first group on the left
+     */
+    public static IntegerPartition getPartition(ArrayList<Integer> parent, long mask) {
+        ArrayList<Integer> group1 = new ArrayList<>();
+        ArrayList<Integer> group2 = new ArrayList<>();
+        for (int i = 0; i < parent.size(); i++) {
+            if ((mask & (1L << i)) != 0) {
+                group1.add(parent.get(i));
+            } else {
+                group2.add(parent.get(i));
+            }
+        }
+        return new IntegerPartition(group1, group2);
+    }
 
-        for (Jama.Matrix m : binaryEnumeration) {
+    private static long[] enumerateMasks(int numElements) {
+        if (countDisjointSets(numElements) > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many bipartitions to enumerate for " + numElements + " elements; cap or sample the partitions instead");
+        }
+        long[] masks = new long[(int) countDisjointSets(numElements)];
+        PrimitiveIterator.OfLong it = bipartitionMasks(numElements);
+        for (int k = 0; k < masks.length; k++) {
+            masks[k] = it.nextLong();
+        }
+        return masks;
+    }
 
-            ArrayList<Integer> group1 = new ArrayList<>();
-            ArrayList<Integer> group2 = new ArrayList<>();
-            for (int i = 0; i < m.getRowDimension(); i++) {
-                if (m.get(i, 0) == 1) {
-                    group1.add(parent.get(i));
-                } else {
-                    group2.add(parent.get(i));
+    /**
+     * Lazily enumerates the bipartitions of numElements elements as bitmasks
+     * (bit i set when element i is in the first group), without allocating
+     * per partition.
+     *
+     * Each bipartition appears once, with the smaller group first (for an
+     * even split, the group holding element 0). The order counts upwards
+     * with element 0 as the most significant bit, which is the order the
+     * tree has always scored partitions in (and so breaks ties the same
+     * way).
+     *
+     * @param numElements Number of elements (at most 63)
+     * @return Iterator over the masks
+     */
+    public static PrimitiveIterator.OfLong bipartitionMasks(int numElements) {
+        if (numElements > 63) {
+            throw new IllegalArgumentException("Too many elements to enumerate bipartitions: " + numElements);
+        }
+        return new PrimitiveIterator.OfLong() {
+            private final int maxGroupSize = (numElements + 1) / 2;
+            private long counter = 0;
+            private long next = advance();
+
+            /**
+             * Moves the counter to the next valid group and returns its mask,
+             * or -1 when done
+             */
+            private long advance() {
+                /**
+                 * 1L << 63 is negative, so stop on equality rather than
+                 * comparing: the counter reaches it exactly once
+                 */
+                long end = 1L << numElements;
+                while (++counter != end) {
+                    int size = Long.bitCount(counter);
+                    if (size < 1 || size > maxGroupSize) {
+                        continue;
+                    }
+                    long mask = Long.reverse(counter) >>> (64 - numElements);
+                    if (size == maxGroupSize && numElements > 1) {
+                        /**
+                         * Even split: keep the half holding element 0. Odd
+                         * number of elements: the larger group's complement
+                         * has already been listed
+                         */
+                        if (numElements % 2 != 0 || (mask & 1L) == 0) {
+                            continue;
+                        }
+                    }
+                    return mask;
                 }
+                return -1;
             }
 
-            String s1 = "{ ";
-            for (int i = 0; i < group1.size(); i++) {
-                s1 = s1.concat(group1.get(i) + " ");
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
             }
-            s1 = s1.concat("}");
-            String s2 = "{ ";
-            for (int i = 0; i < group2.size(); i++) {
-                s2 = s2.concat(group2.get(i) + " ");
-            }
-            s2 = s2.concat("}");
-            
-            boolean debug = false;
-            if (debug) {
-                // System.out.println(s1 + " " + s2);
-            }
-            IntegerPartition p = new IntegerPartition(group1, group2);
 
-            if (!subsetTree.contains(s1)) {
-                if (!subsetTree.contains(s2)) {
-                    results.add(p);
-                    subsetTree.add(s1);
-                    subsetTree.add(s2);
+            @Override
+            public long nextLong() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
                 }
+                long mask = next;
+                next = advance();
+                return mask;
             }
-        }
-        return results;
+        };
     }
 
-    public ArrayList<ArrayList<Integer>> getAllDisjointSets() {
-        ArrayList<ArrayList<Integer>> disjoint = new ArrayList<>();
-
-        return disjoint;
+    /**
+     * Number of bipartitions of a set with numElements elements into two
+     * non-empty groups, 2^(numElements-1)-1 (Long.MAX_VALUE if that
+     * overflows).
+     */
+    public static long countDisjointSets(int numElements) {
+        if (numElements < 1) {
+            return 0;
+        }
+        if (numElements > 63) {
+            return Long.MAX_VALUE;
+        }
+        return (1L << (numElements - 1)) - 1;
     }
 
-    static void count(Matrix binaryCounter, int index, ArrayList<Jama.Matrix> results) {
-        // System.out.println("index1: " + index);
-        Jama.Matrix ones = new Jama.Matrix(1, binaryCounter.getRowDimension(), 1);
-
-        if (index < binaryCounter.getRowDimension() - 1) {
-            count(binaryCounter.copy(), index + 1, results);
-            binaryCounter.set(index, 0, 1);
-            count(binaryCounter.copy(), index + 1, results);
-        } else {
-            int maxIndex = (int) Math.floor(binaryCounter.getRowDimension() / 2);
-            if ((binaryCounter.getRowDimension() / 2.0) != Math.floor(binaryCounter.getRowDimension() / 2)) {
-                maxIndex++;
-            }
-            // System.out.println(maxIndex);
-            // pmUtility.prettyPrintVector(binaryCounter);
-            int count = (int) (ones.times(binaryCounter)).get(0, 0);
-            boolean valid = true;
-            if (count > maxIndex || count < 1) {
-                valid = false;
-            }
-            if (count == maxIndex) {
-//                System.out.println("---");
-//                pmUtility.prettyPrintVector(binaryCounter);
-                boolean repeating = true;
-                for (int i = 0; i < 1; i++) {
-                    if (binaryCounter.get(i, 0) == 1) {
-                        repeating = false;
-                    }
-                }
-                if (repeating) {
-                    valid = false;
+    /**
+     * Draws distinct bipartitions uniformly at random without enumerating
+     * them all: the first element is held on the right, and every other
+     * element joins the left with probability one half (redrawing empty and
+     * repeated groups).
+     *
+     * @param parent Elements to partition
+     * @param numSamples Number of distinct bipartitions to draw (capped at
+     * countDisjointSets)
+     * @param rng Source of the draws
+     * @return The sampled bipartitions
+     */
+    public static ArrayList<IntegerPartition> sampleDisjointSets(ArrayList<Integer> parent, int numSamples, Random rng) {
+        long numDraws = Math.min(numSamples, countDisjointSets(parent.size()));
+        ArrayList<IntegerPartition> results = new ArrayList<>();
+        HashSet<BitSet> drawn = new HashSet<>();
+        while (results.size() < numDraws) {
+            BitSet left = new BitSet(parent.size());
+            for (int i = 1; i < parent.size(); i++) {
+                if (rng.nextBoolean()) {
+                    left.set(i);
                 }
             }
-
-            if (valid) {
-                // have to come up with valid criterion here...
-//                System.out.println("*");
-                results.add(binaryCounter.copy());
-            } else {
-//                System.out.println("Rejected");
-            }
-//            System.out.println("---");
-
-            binaryCounter.set(index, 0, 1);
-            // pmUtility.prettyPrintVector(binaryCounter);
-
-            // rule:
-            // any one
-            // any two, as long as one is one
-            // any three, as long as first two
-            // any four, as long as first three
-            // etc.
-            count = (int) (ones.times(binaryCounter)).get(0, 0);
-            valid = true;
-            if (count > maxIndex || count < 1) {
-                valid = false;
+            if (left.isEmpty() || !drawn.add(left)) {
+                continue;
             }
-            if (count == maxIndex) {
-//                System.out.println("---");
-//                pmUtility.prettyPrintVector(binaryCounter);
-                boolean repeating = true;
-                for (int i = 0; i < 1; i++) {
-                    if (binaryCounter.get(i, 0) == 1) {
-                        repeating = false;
-                    }
-                }
-                if (repeating) {
-                    valid = false;
+            ArrayList<Integer> group1 = new ArrayList<>();
+            ArrayList<Integer> group2 = new ArrayList<>();
+            for (int i = 0; i < parent.size(); i++) {
+                if (left.get(i)) {
+                    group1.add(parent.get(i));
+                } else {
+                    group2.add(parent.get(i));
                 }
             }
-
-            if (valid) {
-//                System.out.println("*");
-                results.add(binaryCounter.copy());
-            } else {
-//                System.out.println("Rejected");
-            }
-//            System.out.println("---");
+            results.add(new IntegerPartition(group1, group2));
         }
+        return results;
+    }
+
+    public ArrayList<ArrayList<Integer>> getAllDisjointSets() {
+        ArrayList<ArrayList<Integer>> disjoint = new ArrayList<>();
+
+        return disjoint;
     }
 
 }
\ No newline at end of file
@@ -62,7 +62,7 @@ public class DistanceMetricTestWholeTree implements Uncmin_methods, mcmc.mcmcFun
 
         int numObs = 0;
         for (DataLens h : v) {
-            numObs += h.getNumObs();
+            numObs += h.getWeightedNumObs();
         }
 
         if (verbose) {
@@ -291,7 +291,7 @@ public class DistanceMetricTestWholeTree implements Uncmin_methods, mcmc.mcmcFun
         int numObs = 0;
         for (int leaf = 0; leaf < v.size(); leaf++) {
             DataLens lens = v.get(leaf);
-            numObs += lens.getNumObs();
+            numObs += lens.getWeightedNumObs();
             ContainerMoment c = spec.getContainerMoment(lens);
             Jama.Matrix leafG = c.getMomentGWithoutDivision(cellBetaList.get(leaf));
             for (int j = 0; j < leafG.getRowDimension(); j++) {
@@ -354,7 +354,7 @@ public class DistanceMetricTestWholeTree implements Uncmin_methods, mcmc.mcmcFun
         Jama.Matrix g = new Jama.Matrix(0, 1);
         for (int leaf = 0; leaf < v.size(); leaf++) {
             DataLens lens = v.get(leaf);
-            numObs += lens.getNumObs();
+            numObs += lens.getWeightedNumObs();
             ContainerMoment c = spec.getContainerMoment(lens);
             g = pmUtility.stackMatrix(g, c.getMomentGWithoutDivision(cellBetaList.get(leaf)));
             SSE += c.computeMeasureOfFit(cellBetaList.get(leaf));
@@ -455,13 +455,13 @@ public class DistanceMetricTestWholeTree implements Uncmin_methods, mcmc.mcmcFun
             // need to get gi, which is a little weird here
 
             DataLens lens = v.get(leaf);
-            numObs += lens.getNumObs();
+            numObs += lens.getWeightedNumObs();
             ContainerMoment c = spec.getContainerMoment(lens);
             Jama.Matrix ggprime_lens = new Jama.Matrix(spec.getNumMoments(), spec.getNumMoments());
             for (int i = 0; i < lens.getNumObs(); i++) {
                 // Jama.Matrix gi = new Jama.Matrix(numMoments, 1);
                 Jama.Matrix leafGi = c.getGi(cellBetaList.get(leaf), i);
-                ggprime_lens.plusEquals(leafGi.times(leafGi.transpose()));
+                ggprime_lens.plusEquals(leafGi.times(leafGi.transpose()).times(lens.getWeight(i)));
             }
 
             Jama.Matrix ggprime_lens_inverse;
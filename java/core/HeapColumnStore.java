@@ -0,0 +1,90 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2025 Stephen P. Ryan <stephen.p.ryan@wustl.edu>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package core;
+
+/**
+ * Column store held on the heap: one contiguous double[] each for Y and for
+ * every column of X and Z, so reading z_ij in a split search is two array
+ * loads rather than a trip through a Jama row.
+ *
+ * @author Stephen P. Ryan <stephen.p.ryan@wustl.edu>
+ */
+public class HeapColumnStore extends ColumnStore {
+
+    private final double[] y;
+    private final double[][] x;
+    private final double[][] z;
+
+    public HeapColumnStore(Jama.Matrix X, Jama.Matrix Y, Jama.Matrix Z) {
+        y = getColumn(Y, 0);
+        x = new double[X.getColumnDimension()][];
+        for (int j = 0; j < x.length; j++) {
+            x[j] = getColumn(X, j);
+        }
+        z = new double[Z.getColumnDimension()][];
+        for (int j = 0; j < z.length; j++) {
+            z[j] = getColumn(Z, j);
+        }
+    }
+
+    private static double[] getColumn(Jama.Matrix m, int j) {
+        double[][] a = m.getArray();
+        double[] column = new double[a.length];
+        for (int i = 0; i < a.length; i++) {
+            column[i] = a[i][j];
+        }
+        return column;
+    }
+
+    @Override
+    public int getNumRows() {
+        return y.length;
+    }
+
+    @Override
+    public int getNumColumnsX() {
+        return x.length;
+    }
+
+    @Override
+    public int getNumColumnsZ() {
+        return z.length;
+    }
+
+    @Override
+    public double getY(int row) {
+        return y[row];
+    }
+
+    @Override
+    public double getX(int row, int j) {
+        return x[j][row];
+    }
+
+    @Override
+    public double getZ(int row, int j) {
+        return z[j][row];
+    }
+
+}
@@ -48,7 +48,7 @@ public class HomogeneousSearchContainer implements Uncmin_methods, mcmc.mcmcFunc
         this.rngSeedBaseOutOfSample = rngSeedBaseOutOfSample;
         this.homogeneousParameterList = homogeneousParameterList;
 
-        homogenizedForestLens = new DataLens(mySpecification.getX(), mySpecification.getY(), mySpecification.getZ(), null);
+        homogenizedForestLens = new DataLens(mySpecification.getColumnStore(), null);
 
         for (boolean b : mySpecification.getHomogeneousIndex()) {
             if (!b) {
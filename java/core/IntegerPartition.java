@@ -24,6 +24,7 @@
 package core;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  *
@@ -34,9 +35,42 @@ public class IntegerPartition {
     ArrayList<Integer> left;
     ArrayList<Integer> right;
 
+    /**
+     * Sorted categories on either side, and a bitmask over them (bit c of
+     * leftMask[c / 64] is set when categories[c] is on the left), so
+     * membership is a binary search and a bit test instead of a scan over
+     * boxed values
+     */
+    private final int[] categories;
+    private final long[] leftMask;
+
     public IntegerPartition(ArrayList<Integer> left, ArrayList<Integer> right) {
         this.left = left;
         this.right = right;
+
+        categories = new int[left.size() + right.size()];
+        for (int i = 0; i < left.size(); i++) {
+            categories[i] = left.get(i);
+        }
+        for (int i = 0; i < right.size(); i++) {
+            categories[left.size() + i] = right.get(i);
+        }
+        Arrays.sort(categories);
+        leftMask = new long[(categories.length + 63) / 64];
+        for (int category : left) {
+            int c = Arrays.binarySearch(categories, category);
+            leftMask[c >>> 6] |= 1L << c;
+        }
+    }
+
+    /**
+     * @param category Value of the discrete variable
+     * @return true if the value is in the left group (false for values in
+     * neither group, as with getLeft().contains)
+     */
+    public boolean isLeft(int category) {
+        int c = Arrays.binarySearch(categories, category);
+        return c >= 0 && (leftMask[c >>> 6] & (1L << c)) != 0;
     }
 
     // Returns the integer values in the left leaf after splitting on discrete variable
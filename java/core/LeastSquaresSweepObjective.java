@@ -0,0 +1,67 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2025 Stephen P. Ryan <stephen.p.ryan@wustl.edu>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package core;
+
+/**
+ * Hooks for split objectives whose container is a least-squares fit. An
+ * objective implementing this can be scored from running X'X, X'y and y'y
+ * sums (MomentContinuousSplitObj.sweep and binnedSearch, PartitionSweep)
+ * instead of refitting the container at every candidate; the tree checks for
+ * it with instanceof.
+ *
+ * @author Stephen P. Ryan <stephen.p.ryan@wustl.edu>
+ */
+public interface LeastSquaresSweepObjective {
+
+    /**
+     * @return Number of regressors entering the least-squares sweep.
+     */
+    public int getSweepDimension();
+
+    /**
+     * Fill xi with the regressors of observation i and return the outcome that
+     * is fit on them (net of any imposed homogeneous components).
+     *
+     * @param lens DataLens the split is being searched over
+     * @param i Observation index within the lens
+     * @param xi Array of length getSweepDimension() to fill
+     * @return Outcome for observation i
+     */
+    public double getSweepObservation(DataLens lens, int i, double[] xi);
+
+    /**
+     * @return Smallest partition the container will fit; smaller partitions
+     * are scored as positive infinity, same as the container would.
+     */
+    public int getSweepMinimumObservations();
+
+    /**
+     * @return true if the container fits a partition with collinear
+     * regressors at the minimum-norm solution (as pmUtility.OLSsvd does), so
+     * the sweep should score it the same way; false if the container fails
+     * such a fit and the sweep should score it as positive infinity.
+     */
+    public boolean isMinimumNormFit();
+
+}
@@ -0,0 +1,595 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2025 Stephen P. Ryan <stephen.p.ryan@wustl.edu>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package core;
+
+/**
+ * Least-squares kernel over preallocated arrays. X'X (lower triangle), X'y
+ * and y'y are accumulated in place, either straight from a DataLens or one
+ * observation at a time, and the normal equations are solved by an in-place
+ * Cholesky factorization. Rank is judged on X'X scaled to unit diagonal
+ * (D^-1/2 X'X D^-1/2, D the diagonal of X'X), so rescaling a column (a
+ * regressor in dollars rather than thousands) never changes the decision: a
+ * Cholesky pivot is compared with RANK_TOLERANCE times its own diagonal
+ * entry, which is one minus the R-squared of that column on the columns
+ * before it. When a pivot fails the solve falls back to a column-pivoted
+ * Householder QR of the scaled X'X, which reorders the columns but applies
+ * the same tolerance to the diagonal of R; anything it also rejects is
+ * reported as singular rather than solved. Factoring X'X squares the
+ * condition number of X, so a looser test there would hand back meaningless
+ * coefficients for nearly collinear designs. A workspace set to minimum norm
+ * instead falls back to the pseudo-inverse of X'X (the solution
+ * pmUtility.OLSsvd gives), with the null space also found on the scaled
+ * X'X, so a rank-deficient fit still has a finite SSE.
+ *
+ * Adding or removing a single observation updates the sums and, when a
+ * factorization is current, updates or downdates the Cholesky factor in
+ * O(p^2), so a split scan moving observations from one side to the other
+ * never refactors from scratch. A downdate that would lose positive
+ * definiteness drops the factor, and it is rebuilt from the sums every
+ * REFACTOR_INTERVAL updates so rounding in the factor does not accumulate.
+ *
+ * Accumulating and solving allocate nothing (apart from the minimum-norm
+ * fallback); one workspace per thread is kept for the containers (see
+ * forThread).
+ *
+ * @author Stephen P. Ryan <stephen.p.ryan@wustl.edu>
+ */
+public class LeastSquaresWorkspace {
+
+    /**
+     * Smallest pivot accepted in X'X scaled to unit diagonal (relative to the
+     * column's own diagonal entry for Cholesky, to the first diagonal of R
+     * for pivoted QR, to the largest eigenvalue for the minimum-norm rank)
+     */
+    static final double RANK_TOLERANCE = 1E-10;
+    /**
+     * Rank-one updates applied to a factor before it is rebuilt from the sums
+     */
+    static final int REFACTOR_INTERVAL = 100;
+
+    private static final ThreadLocal<LeastSquaresWorkspace> WORKSPACE = new ThreadLocal<>();
+
+    private final int p;
+    final double[][] xtx;
+    final double[] xty;
+    double yty;
+
+    private final double[][] chol;
+    private boolean factored;
+    private int updatesSinceFactor;
+
+    private final double[][] qr;
+    private final double[] qrDiag;
+    private final double[] columnNorm;
+    private final int[] pivot;
+    private final double[] qrSolution;
+    private final double[] columnScale;
+
+    private final double[] beta;
+    private final double[] work;
+    private final double[] row;
+    private boolean solved;
+    private boolean singular;
+    private boolean minimumNorm;
+
+    public LeastSquaresWorkspace(int p) {
+        this.p = p;
+        xtx = new double[p][p];
+        xty = new double[p];
+        chol = new double[p][p];
+        qr = new double[p][p];
+        qrDiag = new double[p];
+        columnNorm = new double[p];
+        pivot = new int[p];
+        qrSolution = new double[p];
+        columnScale = new double[p];
+        beta = new double[p];
+        work = new double[p];
+        row = new double[p];
+    }
+
+    /**
+     * @param p Number of regressors
+     * @return This thread's workspace, reallocated only when p changes
+     */
+    static LeastSquaresWorkspace forThread(int p) {
+        LeastSquaresWorkspace ws = WORKSPACE.get();
+        if (ws == null || ws.p != p) {
+            ws = new LeastSquaresWorkspace(p);
+            WORKSPACE.set(ws);
+        }
+        return ws;
+    }
+
+    public int getDimension() {
+        return p;
+    }
+
+    /**
+     * @param minimumNorm true to solve a rank-deficient X'X at the
+     * minimum-norm least-squares solution instead of reporting it singular
+     */
+    public void setMinimumNorm(boolean minimumNorm) {
+        if (this.minimumNorm != minimumNorm) {
+            this.minimumNorm = minimumNorm;
+            solved = false;
+        }
+    }
+
+    public void reset() {
+        for (int j = 0; j < p; j++) {
+            for (int k = 0; k <= j; k++) {
+                xtx[j][k] = 0;
+            }
+            xty[j] = 0;
+        }
+        yty = 0;
+        factored = false;
+        solved = false;
+    }
+
+    /**
+     * Reset and accumulate X'X, X'y and y'y over the lens, counting each
+     * observation getWeight(i) times. Each entry is summed in lens order, as
+     * in DataLens.getXtX() and getXtY().
+     */
+    public void accumulate(DataLens lens) {
+        reset();
+        for (int i = 0; i < lens.getNumObs(); i++) {
+            for (int j = 0; j < p; j++) {
+                row[j] = lens.getX(i, j);
+            }
+            add(row, lens.getY(i), lens.getWeight(i));
+        }
+    }
+
+    /**
+     * Reset and accumulate the regression of y - X_h beta_h on the free
+     * columns of X, with the free columns in column order.
+     *
+     * @param fixed fixed[k] is true if coefficient k is held at
+     * fixedValues(k); the number of free columns must equal getDimension()
+     * @param fixedValues Vector of the fixed coefficients
+     */
+    public void accumulate(DataLens lens, boolean[] fixed, Jama.Matrix fixedValues) {
+        reset();
+        for (int i = 0; i < lens.getNumObs(); i++) {
+            double yi = lens.getY(i);
+            int j = 0;
+            for (int k = 0; k < fixed.length; k++) {
+                if (fixed[k]) {
+                    yi -= lens.getX(i, k) * fixedValues.get(k, 0);
+                } else {
+                    row[j] = lens.getX(i, k);
+                    j++;
+                }
+            }
+            add(row, yi, lens.getWeight(i));
+        }
+    }
+
+    /**
+     * Add weight copies of an observation (a negative weight removes them).
+     * A current Cholesky factor is updated or downdated rather than dropped.
+     */
+    public void add(double[] xi, double yi, double weight) {
+        if (weight == 0) {
+            return;
+        }
+        for (int j = 0; j < p; j++) {
+            double wxj = weight * xi[j];
+            for (int k = 0; k <= j; k++) {
+                xtx[j][k] += wxj * xi[k];
+            }
+            xty[j] += wxj * yi;
+        }
+        yty += weight * yi * yi;
+        solved = false;
+        if (factored) {
+            if (updatesSinceFactor >= REFACTOR_INTERVAL) {
+                factored = false;
+            } else if (weight > 0) {
+                updateFactor(xi, Math.sqrt(weight));
+            } else {
+                factored = downdateFactor(xi, Math.sqrt(-weight));
+            }
+            updatesSinceFactor++;
+        }
+    }
+
+    /**
+     * Add (sign 1) or subtract (sign -1) another workspace's sums. The factor
+     * is dropped and rebuilt on the next solve.
+     */
+    public void combine(LeastSquaresWorkspace s, double sign) {
+        for (int j = 0; j < p; j++) {
+            for (int k = 0; k <= j; k++) {
+                xtx[j][k] += sign * s.xtx[j][k];
+            }
+            xty[j] += sign * s.xty[j];
+        }
+        yty += sign * s.yty;
+        factored = false;
+        solved = false;
+    }
+
+    /**
+     * Solve the normal equations, reusing the current Cholesky factor if
+     * there is one.
+     *
+     * @return false if X'X is singular (no solution is stored); never false
+     * for a minimum-norm workspace
+     */
+    public boolean solve() {
+        if (solved) {
+            return !singular;
+        }
+        solved = true;
+        singular = false;
+        if (!factored) {
+            factored = factor();
+            updatesSinceFactor = 0;
+        }
+        if (factored) {
+            solveCholesky();
+        } else if (minimumNorm) {
+            solveMinimumNorm();
+        } else if (!solveQR()) {
+            singular = true;
+        }
+        return !singular;
+    }
+
+    /**
+     * @return Least-squares coefficients from the last solve (valid only if
+     * solve() returned true); the array is reused
+     */
+    public double[] getBeta() {
+        return beta;
+    }
+
+    /**
+     * @return p by 1 least-squares coefficients
+     * @throws RuntimeException if X'X is singular, as Jama's inverse() does
+     */
+    public Jama.Matrix getBetaMatrix() {
+        if (!solve()) {
+            throw new RuntimeException("Matrix is singular.");
+        }
+        Jama.Matrix b = new Jama.Matrix(p, 1);
+        for (int j = 0; j < p; j++) {
+            b.set(j, 0, beta[j]);
+        }
+        return b;
+    }
+
+    /**
+     * Sum of squared residuals at the least-squares solution, y'y - b'X'y.
+     *
+     * @return SSE, or positive infinity if X'X is singular
+     */
+    public double getSSE() {
+        if (p == 0) {
+            return yty;
+        }
+        if (!solve()) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double explained = 0;
+        for (int j = 0; j < p; j++) {
+            explained += beta[j] * xty[j];
+        }
+        return Math.max(0, yty - explained);
+    }
+
+    /**
+     * Fills columnScale with 1 / sqrt of the diagonal of X'X (zero for a
+     * column that is identically zero)
+     *
+     * @return false if some column is identically zero
+     */
+    private boolean computeColumnScale() {
+        boolean full = true;
+        for (int j = 0; j < p; j++) {
+            if (xtx[j][j] > 0) {
+                columnScale[j] = 1.0 / Math.sqrt(xtx[j][j]);
+            } else {
+                columnScale[j] = 0;
+                full = false;
+            }
+        }
+        return full;
+    }
+
+    /**
+     * In-place Cholesky of X'X into chol (lower triangle).
+     *
+     * @return false if a pivot falls below RANK_TOLERANCE relative to its
+     * diagonal entry
+     */
+    private boolean factor() {
+        for (int j = 0; j < p; j++) {
+            double d = xtx[j][j];
+            for (int k = 0; k < j; k++) {
+                d -= chol[j][k] * chol[j][k];
+            }
+            if (!(d > RANK_TOLERANCE * xtx[j][j])) {
+                return false;
+            }
+            double ljj = Math.sqrt(d);
+            chol[j][j] = ljj;
+            for (int i = j + 1; i < p; i++) {
+                double s = xtx[i][j];
+                for (int k = 0; k < j; k++) {
+                    s -= chol[i][k] * chol[j][k];
+                }
+                chol[i][j] = s / ljj;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * LL' + (scale x)(scale x)' by Givens rotations.
+     */
+    private void updateFactor(double[] xi, double scale) {
+        for (int j = 0; j < p; j++) {
+            work[j] = scale * xi[j];
+        }
+        for (int k = 0; k < p; k++) {
+            double lkk = chol[k][k];
+            double r = Math.hypot(lkk, work[k]);
+            double c = r / lkk;
+            double s = work[k] / lkk;
+            chol[k][k] = r;
+            for (int i = k + 1; i < p; i++) {
+                chol[i][k] = (chol[i][k] + s * work[i]) / c;
+                work[i] = c * work[i] - s * chol[i][k];
+            }
+        }
+    }
+
+    /**
+     * LL' - (scale x)(scale x)' by hyperbolic rotations.
+     *
+     * @return false if the result would fail the same pivot test as factor()
+     * (the factor is then left unusable)
+     */
+    private boolean downdateFactor(double[] xi, double scale) {
+        for (int j = 0; j < p; j++) {
+            work[j] = scale * xi[j];
+        }
+        for (int k = 0; k < p; k++) {
+            double lkk = chol[k][k];
+            double r2 = (lkk - work[k]) * (lkk + work[k]);
+            if (!(r2 > RANK_TOLERANCE * xtx[k][k])) {
+                return false;
+            }
+            double r = Math.sqrt(r2);
+            double c = r / lkk;
+            double s = work[k] / lkk;
+            chol[k][k] = r;
+            for (int i = k + 1; i < p; i++) {
+                chol[i][k] = (chol[i][k] - s * work[i]) / c;
+                work[i] = c * work[i] - s * chol[i][k];
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Forward then back substitution through the Cholesky factor.
+     */
+    private void solveCholesky() {
+        for (int j = 0; j < p; j++) {
+            double s = xty[j];
+            for (int k = 0; k < j; k++) {
+                s -= chol[j][k] * work[k];
+            }
+            work[j] = s / chol[j][j];
+        }
+        for (int j = p - 1; j >= 0; j--) {
+            double s = work[j];
+            for (int k = j + 1; k < p; k++) {
+                s -= chol[k][j] * beta[k];
+            }
+            beta[j] = s / chol[j][j];
+        }
+    }
+
+    /**
+     * Minimum-norm solution through the eigendecomposition of X'X scaled to
+     * unit diagonal, S = D^-1/2 X'X D^-1/2 (its SVD, since S is symmetric).
+     * Eigenvalues of S above RANK_TOLERANCE of the largest give a
+     * least-squares solution D^-1/2 S^+ D^-1/2 X'y, which is accurate
+     * whatever the units of the columns; the eigenvectors below it span the
+     * null space of X'X (after scaling back by D^-1/2), and projecting that
+     * space out of the solution leaves the minimum-norm one in the original
+     * units. Directions X'X cannot identify get no weight, and b'X'y is still
+     * the explained sum of squares because X'y lies in the span of X'X.
+     */
+    private void solveMinimumNorm() {
+        computeColumnScale();
+        Jama.Matrix scaled = new Jama.Matrix(p, p);
+        for (int j = 0; j < p; j++) {
+            for (int k = 0; k <= j; k++) {
+                scaled.set(j, k, columnScale[j] * xtx[j][k] * columnScale[k]);
+                scaled.set(k, j, columnScale[j] * xtx[j][k] * columnScale[k]);
+            }
+            /**
+             * A column that is identically zero is a null direction of its
+             * own, with a zero scale
+             */
+            if (columnScale[j] == 0) {
+                scaled.set(j, j, 0);
+            }
+            beta[j] = 0;
+        }
+        Jama.EigenvalueDecomposition eig = scaled.eig();
+        double[] lambda = eig.getRealEigenvalues();
+        Jama.Matrix v = eig.getV();
+        double lambdaMax = 0;
+        for (int j = 0; j < p; j++) {
+            lambdaMax = Math.max(lambdaMax, lambda[j]);
+        }
+        int nullity = 0;
+        for (int j = 0; j < p; j++) {
+            if (!(lambda[j] > RANK_TOLERANCE * lambdaMax)) {
+                nullity++;
+                continue;
+            }
+            double s = 0;
+            for (int k = 0; k < p; k++) {
+                s += v.get(k, j) * columnScale[k] * xty[k];
+            }
+            s /= lambda[j];
+            for (int k = 0; k < p; k++) {
+                beta[k] += s * columnScale[k] * v.get(k, j);
+            }
+        }
+        if (nullity == 0) {
+            return;
+        }
+
+        /**
+         * Null directions in the original units: D^-1/2 v for the scaled
+         * eigenvectors, or the unit vector of a zero column
+         */
+        Jama.Matrix nullSpace = new Jama.Matrix(p, nullity);
+        int c = 0;
+        for (int j = 0; j < p; j++) {
+            if (lambda[j] > RANK_TOLERANCE * lambdaMax) {
+                continue;
+            }
+            for (int k = 0; k < p; k++) {
+                nullSpace.set(k, c, columnScale[k] == 0 ? v.get(k, j) : columnScale[k] * v.get(k, j));
+            }
+            c++;
+        }
+        Jama.Matrix b = new Jama.Matrix(p, 1);
+        for (int k = 0; k < p; k++) {
+            b.set(k, 0, beta[k]);
+        }
+        Jama.Matrix projection = nullSpace.times(nullSpace.transpose().times(nullSpace).solve(nullSpace.transpose().times(b)));
+        for (int k = 0; k < p; k++) {
+            beta[k] -= projection.get(k, 0);
+        }
+    }
+
+    /**
+     * Householder QR with column pivoting of X'X scaled to unit diagonal.
+     * Columns are brought forward in order of remaining norm, so a rank
+     * deficiency shows up as a trailing diagonal of R that is small next to
+     * the first.
+     *
+     * @return false if a column of X is identically zero or a diagonal of R
+     * falls below RANK_TOLERANCE relative to the first
+     */
+    private boolean solveQR() {
+        if (!computeColumnScale()) {
+            return false;
+        }
+        for (int j = 0; j < p; j++) {
+            for (int k = 0; k < p; k++) {
+                qr[j][k] = columnScale[j] * (k <= j ? xtx[j][k] : xtx[k][j]) * columnScale[k];
+            }
+            work[j] = columnScale[j] * xty[j];
+            pivot[j] = j;
+        }
+        for (int k = 0; k < p; k++) {
+            // remaining norms of the trailing columns
+            int best = k;
+            for (int j = k; j < p; j++) {
+                double s = 0;
+                for (int i = k; i < p; i++) {
+                    s += qr[i][j] * qr[i][j];
+                }
+                columnNorm[j] = s;
+                if (s > columnNorm[best]) {
+                    best = j;
+                }
+            }
+            if (best != k) {
+                for (int i = 0; i < p; i++) {
+                    double t = qr[i][k];
+                    qr[i][k] = qr[i][best];
+                    qr[i][best] = t;
+                }
+                int t = pivot[k];
+                pivot[k] = pivot[best];
+                pivot[best] = t;
+            }
+
+            double norm = Math.sqrt(columnNorm[best]);
+            if (norm == 0) {
+                return false;
+            }
+            if (qr[k][k] < 0) {
+                norm = -norm;
+            }
+            for (int i = k; i < p; i++) {
+                qr[i][k] /= norm;
+            }
+            qr[k][k] += 1.0;
+            for (int j = k + 1; j < p; j++) {
+                double s = 0;
+                for (int i = k; i < p; i++) {
+                    s += qr[i][k] * qr[i][j];
+                }
+                s = -s / qr[k][k];
+                for (int i = k; i < p; i++) {
+                    qr[i][j] += s * qr[i][k];
+                }
+            }
+            double s = 0;
+            for (int i = k; i < p; i++) {
+                s += qr[i][k] * work[i];
+            }
+            s = -s / qr[k][k];
+            for (int i = k; i < p; i++) {
+                work[i] += s * qr[i][k];
+            }
+            qrDiag[k] = -norm;
+        }
+
+        double tolerance = RANK_TOLERANCE * Math.abs(qrDiag[0]);
+        for (int k = 0; k < p; k++) {
+            if (!(Math.abs(qrDiag[k]) > tolerance)) {
+                return false;
+            }
+        }
+        for (int k = p - 1; k >= 0; k--) {
+            double s = work[k];
+            for (int j = k + 1; j < p; j++) {
+                s -= qr[k][j] * qrSolution[j];
+            }
+            qrSolution[k] = s / qrDiag[k];
+        }
+        for (int k = 0; k < p; k++) {
+            beta[pivot[k]] = columnScale[pivot[k]] * qrSolution[k];
+        }
+        return true;
+    }
+
+}
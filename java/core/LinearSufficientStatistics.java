@@ -0,0 +1,103 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2025 Stephen P. Ryan <stephen.p.ryan@wustl.edu>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package core;
+
+/**
+ * Running X'X, X'y and y'y sums for a least-squares fit. Adding or removing an
+ * observation is O(p^2), so a split search can move observations from one
+ * side of a threshold to the other and re-score the partition without
+ * revisiting the rest of the data. The sums and the factorization live in a
+ * LeastSquaresWorkspace, which updates its Cholesky factor as observations
+ * move instead of refactoring at every score.
+ *
+ * @author Stephen P. Ryan <stephen.p.ryan@wustl.edu>
+ */
+public class LinearSufficientStatistics {
+
+    private final LeastSquaresWorkspace workspace;
+    private int numObs;
+
+    public LinearSufficientStatistics(int p) {
+        workspace = new LeastSquaresWorkspace(p);
+    }
+
+    /**
+     * @param minimumNorm true to score collinear regressors at the
+     * minimum-norm solution rather than as a failed fit
+     */
+    public LinearSufficientStatistics(int p, boolean minimumNorm) {
+        this(p);
+        workspace.setMinimumNorm(minimumNorm);
+    }
+
+    public void add(double[] xi, double yi) {
+        workspace.add(xi, yi, 1.0);
+        numObs++;
+    }
+
+    public void subtract(double[] xi, double yi) {
+        workspace.add(xi, yi, -1.0);
+        numObs--;
+    }
+
+    /**
+     * Add an observation that stands for weight copies of itself (a row
+     * drawn several times by a weighted bootstrap).
+     */
+    public void add(double[] xi, double yi, int weight) {
+        workspace.add(xi, yi, weight);
+        numObs += weight;
+    }
+
+    public void subtract(double[] xi, double yi, int weight) {
+        workspace.add(xi, yi, -weight);
+        numObs -= weight;
+    }
+
+    public void add(LinearSufficientStatistics s) {
+        workspace.combine(s.workspace, 1.0);
+        numObs += s.numObs;
+    }
+
+    public void subtract(LinearSufficientStatistics s) {
+        workspace.combine(s.workspace, -1.0);
+        numObs -= s.numObs;
+    }
+
+    public int getNumObs() {
+        return numObs;
+    }
+
+    /**
+     * Sum of squared residuals at the least-squares solution, y'y - b'X'y.
+     *
+     * @return SSE, or positive infinity if X'X is singular and the
+     * statistics are not minimum norm (mirrors the containers, which report
+     * an infinite fit when OLS fails)
+     */
+    public double getSSE() {
+        return workspace.getSSE();
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2025 Stephen P. Ryan <stephen.p.ryan@wustl.edu>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Column store read off-heap from a columnar file through memory-mapped
+ * buffers, so the sample can be larger than the heap; the operating system
+ * pages columns in as they are touched. Lenses, resampling and splitting work
+ * on it exactly as on a HeapColumnStore.
+ *
+ * The file is little-endian: a 32-byte header (the 8 ASCII bytes "MFCOLS01",
+ * then the number of rows, X columns and Z columns as ints, zero-padded),
+ * followed by the Y column and then each column of X and of Z, every column
+ * being numRows consecutive doubles. write() produces it from any store.
+ *
+ * @author Stephen P. Ryan <stephen.p.ryan@wustl.edu>
+ */
+public class MappedColumnStore extends ColumnStore {
+
+    private static final byte[] MAGIC = {'M', 'F', 'C', 'O', 'L', 'S', '0', '1'};
+    private static final int HEADER_BYTES = 32;
+
+    private final int numRows;
+    private final DoubleBuffer y;
+    private final DoubleBuffer[] x;
+    private final DoubleBuffer[] z;
+
+    /**
+     * Map the columns of a file written in the layout above. The mappings
+     * stay valid after the file is closed.
+     *
+     * @param filename Columnar file
+     * @throws IOException if the file cannot be read or is not a column
+     * store
+     */
+    public MappedColumnStore(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    throw new IOException(filename + " is not a column store file");
+                }
+            }
+            for (int b = 0; b < MAGIC.length; b++) {
+                if (header.get(b) != MAGIC[b]) {
+                    throw new IOException(filename + " is not a column store file");
+                }
+            }
+            numRows = header.getInt(8);
+            int numColumnsX = header.getInt(12);
+            int numColumnsZ = header.getInt(16);
+            if (numRows < 0 || numColumnsX < 0 || numColumnsZ < 0 || numRows > Integer.MAX_VALUE / Double.BYTES) {
+                throw new IOException(filename + " has an invalid header: " + numRows + " rows, " + numColumnsX + " X columns, " + numColumnsZ + " Z columns");
+            }
+            long expectedSize = HEADER_BYTES + (long) Double.BYTES * numRows * (1 + numColumnsX + numColumnsZ);
+            if (channel.size() < expectedSize) {
+                throw new IOException(filename + " is truncated: expected " + expectedSize + " bytes, found " + channel.size());
+            }
+
+            /**
+             * One mapping per column, since a single buffer cannot address
+             * more than 2GB
+             */
+            int column = 0;
+            y = mapColumn(channel, column++);
+            x = new DoubleBuffer[numColumnsX];
+            for (int j = 0; j < numColumnsX; j++) {
+                x[j] = mapColumn(channel, column++);
+            }
+            z = new DoubleBuffer[numColumnsZ];
+            for (int j = 0; j < numColumnsZ; j++) {
+                z[j] = mapColumn(channel, column++);
+            }
+        }
+    }
+
+    private DoubleBuffer mapColumn(FileChannel channel, int column) throws IOException {
+        long offset = HEADER_BYTES + (long) Double.BYTES * numRows * column;
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, (long) Double.BYTES * numRows).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+    }
+
+    /**
+     * Write a store to a columnar file that MappedColumnStore can map, one
+     * column at a time.
+     *
+     * @param data Store to write (for example a HeapColumnStore built from
+     * the Jama matrices of a specification)
+     * @param filename File to create or overwrite
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(ColumnStore data, String filename) throws IOException {
+        int n = data.getNumRows();
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.put(MAGIC);
+            header.putInt(n);
+            header.putInt(data.getNumColumnsX());
+            header.putInt(data.getNumColumnsZ());
+            header.position(HEADER_BYTES);
+            header.flip();
+            writeFully(channel, header);
+
+            ByteBuffer chunk = ByteBuffer.allocate(Double.BYTES * 8192).order(ByteOrder.LITTLE_ENDIAN);
+            for (int column = 0; column < 1 + data.getNumColumnsX() + data.getNumColumnsZ(); column++) {
+                for (int row = 0; row < n; row++) {
+                    if (column == 0) {
+                        chunk.putDouble(data.getY(row));
+                    } else if (column <= data.getNumColumnsX()) {
+                        chunk.putDouble(data.getX(row, column - 1));
+                    } else {
+                        chunk.putDouble(data.getZ(row, column - 1 - data.getNumColumnsX()));
+                    }
+                    if (!chunk.hasRemaining()) {
+                        chunk.flip();
+                        writeFully(channel, chunk);
+                        chunk.clear();
+                    }
+                }
+            }
+            chunk.flip();
+            writeFully(channel, chunk);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @Override
+    public int getNumRows() {
+        return numRows;
+    }
+
+    @Override
+    public int getNumColumnsX() {
+        return x.length;
+    }
+
+    @Override
+    public int getNumColumnsZ() {
+        return z.length;
+    }
+
+    @Override
+    public double getY(int row) {
+        return y.get(row);
+    }
+
+    @Override
+    public double getX(int row, int j) {
+        return x[j].get(row);
+    }
+
+    @Override
+    public double getZ(int row, int j) {
+        return z[j].get(row);
+    }
+
+}
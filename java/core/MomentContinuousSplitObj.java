@@ -1,60 +1,299 @@
-/*
- * The MIT License
- *
- * Copyright 2018 Stephen P. Ryan <stephen.p.ryan@wustl.edu>.
- *
- * Permission is hereby granted, free of charge, to any person obtaining a copy
- * of this software and associated documentation files (the "Software"), to deal
- * in the Software without restriction, including without limitation the rights
- * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
- * copies of the Software, and to permit persons to whom the Software is
- * furnished to do so, subject to the following conditions:
- *
- * The above copyright notice and this permission notice shall be included in
- * all copies or substantial portions of the Software.
- *
- * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
- * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
- * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
- * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
- * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
- * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
- * THE SOFTWARE.
- */
-package core;
-
-import optimization.Fmin_methods;
-
-/**
- *
- * @author Stephen P. Ryan <stephen.p.ryan@wustl.edu>
- */
-public abstract class MomentContinuousSplitObj implements Fmin_methods {
-
-    public int indexSplitVariable;
-    
-    public boolean verbose = false;
-    public double leftMSE;
-    public double rightMSE;
-    public int numObsLeft;
-    public int numObsRight;
-
-    public abstract double getSSE();
-
-    public double getRightSSE() {
-        return rightMSE;
-    }
-
-    public double getLeftSSE() {
-        return leftMSE;
-    }
-
-    public int getEffectiveNumObsLeft() {
-        return numObsLeft;
-    }
-
-    public int getEffectiveNumObsRight() {
-        return numObsRight;
-    }
-
-}
\ No newline at end of file
+/*
+ * The MIT License
+ *
+ * Copyright 2018 Stephen P. Ryan <stephen.p.ryan@wustl.edu>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package core;
+
+import java.util.Arrays;
+import optimization.Fmin_methods;
+
+/**
+ *
+ * @author Stephen P. Ryan <stephen.p.ryan@wustl.edu>
+ */
+public abstract class MomentContinuousSplitObj implements Fmin_methods {
+
+    public int indexSplitVariable;
+    
+    public boolean verbose = false;
+    public double leftMSE;
+    public double rightMSE;
+    public int numObsLeft;
+    public int numObsRight;
+
+    /**
+     * Left and right fits from the most recent evaluation, for moments that
+     * keep them (null otherwise). The tree hands the winning pair to the
+     * children instead of refitting the same data.
+     */
+    protected ContainerMoment leftFit;
+    protected ContainerMoment rightFit;
+
+    /**
+     * Starting value handed to iterative containers (typically the node's
+     * own estimate), or null to start from zero
+     */
+    protected Jama.Matrix startingBeta;
+
+    /**
+     * Index array every candidate split of this objective is written into
+     */
+    private int[] candidateRows;
+
+    public abstract double getSSE();
+
+    public double getRightSSE() {
+        return rightMSE;
+    }
+
+    public double getLeftSSE() {
+        return leftMSE;
+    }
+
+    public int getEffectiveNumObsLeft() {
+        return numObsLeft;
+    }
+
+    public int getEffectiveNumObsRight() {
+        return numObsRight;
+    }
+
+    public ContainerMoment getLeftFit() {
+        return leftFit;
+    }
+
+    public ContainerMoment getRightFit() {
+        return rightFit;
+    }
+
+    public void setStartingBeta(Jama.Matrix startingBeta) {
+        this.startingBeta = startingBeta;
+    }
+
+    /**
+     * Candidate split at splitPoint, for f_to_minimize. All the candidates
+     * this objective scores share one index array, so a search allocates one
+     * array per variable rather than one per candidate. The lenses, and fits
+     * on them, are only valid until the next candidate; the tree takes the
+     * fits from the final evaluation at the chosen split point, after which
+     * the objective is not evaluated again.
+     *
+     * @param lens Node being split
+     * @param splitPoint Candidate threshold on indexSplitVariable
+     * @return Left and right lenses for the candidate
+     */
+    protected SplitContainer getCandidateSplit(DataLens lens, double splitPoint) {
+        if (candidateRows == null || candidateRows.length < lens.getNumObs()) {
+            candidateRows = new int[lens.getNumObs()];
+        }
+        return SplitContainer.getContinuousDataSplit(lens, splitPoint, indexSplitVariable, candidateRows);
+    }
+
+    /**
+     * Sort the node once on the split variable (or use the lens's presorted
+     * order), then move observations one at a time from the right partition
+     * to the left while keeping running X'X, X'y and y'y sums. Every
+     * threshold between adjacent distinct values is scored exactly, at O(p^2)
+     * per observation.
+     *
+     * On return, the left/right SSEs and counts describe the optimal split.
+     *
+     * Only for objectives implementing LeastSquaresSweepObjective.
+     *
+     * @param lens DataLens to split
+     * @param minCount Minimum number of observations in each partition
+     * @return Optimal split point (midpoint between adjacent distinct values)
+     */
+    public double sweep(DataLens lens, int minCount) {
+        LeastSquaresSweepObjective hooks = (LeastSquaresSweepObjective) this;
+        int n = lens.getNumObs();
+        int p = hooks.getSweepDimension();
+        double[][] x = new double[n][p];
+        double[] y = new double[n];
+        double[] z = new double[n];
+        LinearSufficientStatistics left = new LinearSufficientStatistics(p, hooks.isMinimumNormFit());
+        LinearSufficientStatistics right = new LinearSufficientStatistics(p, hooks.isMinimumNormFit());
+        for (int i = 0; i < n; i++) {
+            y[i] = hooks.getSweepObservation(lens, i, x[i]);
+            z[i] = lens.getZ(i, indexSplitVariable);
+            right.add(x[i], y[i], lens.getWeight(i));
+        }
+
+        // a presorted lens already carries the order; otherwise sort the node here
+        int[] sortIndex = lens.getSortedIndex(indexSplitVariable);
+        if (sortIndex == null) {
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(z[a], z[b]));
+            sortIndex = new int[n];
+            for (int i = 0; i < n; i++) {
+                sortIndex[i] = order[i];
+            }
+        }
+
+        int minObs = Math.max(minCount, hooks.getSweepMinimumObservations());
+
+        double optimalSplit = Double.POSITIVE_INFINITY;
+        double optimalSSE = Double.POSITIVE_INFINITY;
+        leftMSE = Double.POSITIVE_INFINITY;
+        rightMSE = Double.POSITIVE_INFINITY;
+        numObsLeft = lens.getWeightedNumObs();
+        numObsRight = 0;
+
+        for (int r = 0; r < n - 1; r++) {
+            int i = sortIndex[r];
+            left.add(x[i], y[i], lens.getWeight(i));
+            right.subtract(x[i], y[i], lens.getWeight(i));
+            double zLower = z[i];
+            double zUpper = z[sortIndex[r + 1]];
+            if (zLower == zUpper || left.getNumObs() < minObs) {
+                continue;
+            }
+            if (right.getNumObs() < minObs) {
+                break;
+            }
+            double sseLeft = left.getSSE();
+            double sseRight = right.getSSE();
+            if (sseLeft + sseRight < optimalSSE) {
+                optimalSSE = sseLeft + sseRight;
+                // SplitRule sends z < splitPoint left; guard against the midpoint rounding onto zLower
+                optimalSplit = 0.5 * (zLower + zUpper);
+                if (optimalSplit <= zLower) {
+                    optimalSplit = zUpper;
+                }
+                leftMSE = sseLeft;
+                rightMSE = sseRight;
+                numObsLeft = left.getNumObs();
+                numObsRight = right.getNumObs();
+            }
+        }
+        return optimalSplit;
+    }
+
+    /**
+     * Histogram search over the quantile bins carried by the lens: only bin
+     * boundaries are candidate thresholds. When the objective implements
+     * LeastSquaresSweepObjective the node is read once into per-bin X'X, X'y and y'y sums and each boundary
+     * is scored from the accumulated bins; otherwise the objective is
+     * evaluated once per boundary that changes the partition.
+     *
+     * On return, the left/right SSEs and counts describe the optimal split.
+     *
+     * @param lens DataLens to split (must carry BinnedZ for this variable)
+     * @param minCount Minimum number of observations in each partition
+     * @return Optimal split point (a bin cut point)
+     */
+    public double binnedSearch(DataLens lens, int minCount) {
+        BinnedZ bins = lens.getBinnedZ();
+        int n = lens.getNumObs();
+        int total = lens.getWeightedNumObs(); // bin counts are weighted
+        int numBins = bins.getNumBins(indexSplitVariable);
+        int[] binCount = new int[numBins];
+
+        boolean useStatistics = this instanceof LeastSquaresSweepObjective;
+        LinearSufficientStatistics[] binStatistics = null;
+        LinearSufficientStatistics left = null;
+        LinearSufficientStatistics right = null;
+        int minObs = minCount;
+        if (useStatistics) {
+            LeastSquaresSweepObjective hooks = (LeastSquaresSweepObjective) this;
+            int p = hooks.getSweepDimension();
+            binStatistics = new LinearSufficientStatistics[numBins];
+            for (int b = 0; b < numBins; b++) {
+                binStatistics[b] = new LinearSufficientStatistics(p);
+            }
+            left = new LinearSufficientStatistics(p, hooks.isMinimumNormFit());
+            right = new LinearSufficientStatistics(p, hooks.isMinimumNormFit());
+            minObs = Math.max(minCount, hooks.getSweepMinimumObservations());
+            double[] xi = new double[p];
+            for (int i = 0; i < n; i++) {
+                int b = lens.getZBin(i, indexSplitVariable);
+                binCount[b] += lens.getWeight(i);
+                binStatistics[b].add(xi, hooks.getSweepObservation(lens, i, xi), lens.getWeight(i));
+            }
+            for (int b = 0; b < numBins; b++) {
+                right.add(binStatistics[b]);
+            }
+        } else {
+            for (int i = 0; i < n; i++) {
+                binCount[lens.getZBin(i, indexSplitVariable)] += lens.getWeight(i);
+            }
+        }
+
+        double optimalSplit = Double.POSITIVE_INFINITY;
+        double optimalSSE = Double.POSITIVE_INFINITY;
+        double optimalLeftMSE = Double.POSITIVE_INFINITY;
+        double optimalRightMSE = Double.POSITIVE_INFINITY;
+        int optimalNumObsLeft = total;
+        int optimalNumObsRight = 0;
+
+        int countLeft = 0;
+        for (int b = 0; b < numBins - 1; b++) {
+            if (binCount[b] == 0) {
+                // empty bin: same partition as the previous boundary
+                continue;
+            }
+            countLeft += binCount[b];
+            if (useStatistics) {
+                left.add(binStatistics[b]);
+                right.subtract(binStatistics[b]);
+            }
+            if (countLeft == total) {
+                break;
+            }
+            double splitPoint = bins.getUpperCutPoint(indexSplitVariable, b);
+            double sseLeft;
+            double sseRight;
+            if (useStatistics) {
+                if (countLeft < minObs) {
+                    continue;
+                }
+                if (total - countLeft < minObs) {
+                    break;
+                }
+                sseLeft = left.getSSE();
+                sseRight = right.getSSE();
+            } else {
+                f_to_minimize(splitPoint);
+                sseLeft = leftMSE;
+                sseRight = rightMSE;
+            }
+            if (sseLeft + sseRight < optimalSSE) {
+                optimalSSE = sseLeft + sseRight;
+                optimalSplit = splitPoint;
+                optimalLeftMSE = sseLeft;
+                optimalRightMSE = sseRight;
+                optimalNumObsLeft = countLeft;
+                optimalNumObsRight = total - countLeft;
+            }
+        }
+
+        leftMSE = optimalLeftMSE;
+        rightMSE = optimalRightMSE;
+        numObsLeft = optimalNumObsLeft;
+        numObsRight = optimalNumObsRight;
+        return optimalSplit;
+    }
+
+}
@@ -24,6 +24,7 @@
 package core;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Random;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
@@ -80,32 +81,62 @@ public class MomentForest {
 
         Random rng = new Random(forestSeed);
 
+        /**
+         * Quantile bins are placed once on the full sample and shared by
+         * every tree through the resampled lenses.
+         */
+        DataLens sourceLens = forestLens;
+        if (treeOptions.getMaxBins() > 0) {
+            int[] binnedColumns = Arrays.stream(getContinuousSplitVariableIndices()).filter(k -> spec.getVariableType(k) != VariableType.ORDINAL).toArray();
+            sourceLens = forestLens.getBinnedDataLens(treeOptions.getMaxBins(), binnedColumns); // ordinal levels are searched exactly
+        }
+
         for (int i = 0; i < numberTreesInForest; i++) {
             // resample the forestLens, then split it
             DataLens resampled;
             DataLens[] split;
             if (forestLens.balancingVector != null) {
                 //System.out.println("Tree " + i + ": Using balancing vector");
-                resampled = forestLens.getResampledDataLensWithBalance(rng.nextLong());
+                resampled = sourceLens.getResampledDataLensWithBalance(rng.nextLong());
                 split = resampled.randomlySplitSampleWithBalance(proportionObservationsToEstimateTreeStructure, rng.nextLong());
 
             } else if (forestLens.strataColumnIndex != null) {
                 //System.out.println("Tree " + i + ": Using strata column " + forestLens.strataColumnIndex);
-                resampled = forestLens.getResampledDataLens(rng.nextLong());
+                resampled = sourceLens.getResampledDataLens(rng.nextLong());
                 split = resampled.randomlySplitSampleByStrata(proportionObservationsToEstimateTreeStructure, rng.nextLong());
 
             } else {
                 //System.out.println("Tree " + i + ": Using simple random sampling");
-                resampled = forestLens.getResampledDataLens(rng.nextLong());
+                if (treeOptions.isWeightedBootstrap() && spec.isWeightedLensSupported()) {
+                    /**
+                     * The honest split is then over distinct rows, so every
+                     * copy of a drawn row lands on the same side
+                     */
+                    resampled = sourceLens.getWeightedResampledDataLens(rng.nextLong());
+                } else {
+                    resampled = sourceLens.getResampledDataLens(rng.nextLong());
+                }
                 split = resampled.randomlySplitSample(proportionObservationsToEstimateTreeStructure, rng.nextLong());
             }
 
             DataLens lensGrow = split[0];
             DataLens lensHonest = split[1];
 
-            forest.add(new TreeMoment(null, spec, lensGrow,
+            if (treeOptions.isPresortSplitVariables()) {
+                lensGrow.presort(getContinuousSplitVariableIndices());
+            }
+            lensGrow.indexCategories(getDiscreteSplitVariableIndices());
+
+            TreeMoment tree = new TreeMoment(null, spec, lensGrow,
                     spec.getDiscreteVector(), verbose, treeOptions.getMinProportion(), treeOptions.getMinCount(), treeOptions.getMinMSEImprovement(), true, treeOptions.getMaxDepth(),
-                    lensHonest, treeOptions.isTestParameterHomogeneity(), rng.nextLong()));
+                    lensHonest, treeOptions.isTestParameterHomogeneity(), rng.nextLong());
+            tree.setParallelSplitSearch(treeOptions.isParallelSplitSearch());
+            tree.setParallelSubtreeMinObs(treeOptions.getParallelSubtreeMinObs());
+            tree.setExactSearchMaxObs(treeOptions.getExactSearchMaxObs());
+            tree.setOrderedSplitMinCategories(treeOptions.getOrderedSplitMinCategories());
+            tree.setMaxPartitionsPerVariable(treeOptions.getMaxPartitionsPerVariable());
+            tree.setSplitVariablesPerNode(treeOptions.getSplitVariablesPerNode());
+            forest.add(tree);
         }
 
         boolean useParallel = true;
@@ -138,6 +169,16 @@ public class MomentForest {
         numberTreesInForest = forest.size();
     }
 
+    private int[] getContinuousSplitVariableIndices() {
+        Boolean[] discreteVector = spec.getDiscreteVector();
+        return Arrays.stream(spec.getVariableIndicesToSearchOver()).filter(k -> !discreteVector[k]).toArray();
+    }
+
+    private int[] getDiscreteSplitVariableIndices() {
+        Boolean[] discreteVector = spec.getDiscreteVector();
+        return Arrays.stream(spec.getVariableIndicesToSearchOver()).filter(k -> discreteVector[k]).toArray();
+    }
+
     /**
      * Get parameters associated with a given vector of observables zi
      *
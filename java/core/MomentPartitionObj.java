@@ -23,8 +23,6 @@
  */
 package core;
 
-import java.util.ArrayList;
-
 /**
  *
  * @author Stephen P. Ryan <stephen.p.ryan@wustl.edu>
@@ -41,6 +39,20 @@ public abstract class MomentPartitionObj {
     public int numObsLeft;
     public int numObsRight;
 
+    /**
+     * Left and right fits from the most recent evaluation, for moments that
+     * keep them (null otherwise). The tree hands the winning pair to the
+     * children instead of refitting the same data.
+     */
+    protected ContainerMoment leftFit;
+    protected ContainerMoment rightFit;
+
+    /**
+     * Starting value handed to iterative containers (typically the node's
+     * own estimate), or null to start from zero
+     */
+    protected Jama.Matrix startingBeta;
+
     public abstract double getSSE();
 
     public double getRightSSE() {
@@ -59,14 +71,27 @@ public abstract class MomentPartitionObj {
         return numObsRight;
     }
 
+    public ContainerMoment getLeftFit() {
+        return leftFit;
+    }
+
+    public ContainerMoment getRightFit() {
+        return rightFit;
+    }
+
+    public void setStartingBeta(Jama.Matrix startingBeta) {
+        this.startingBeta = startingBeta;
+    }
+
     public SplitContainer getDataSplit() {
+        if (lens.getCategoryBuckets(indexSplitVariable) != null) {
+            return lens.getPartitionSplit(indexSplitVariable, partition);
+        }
         int countLeft = 0;
         int countRight = 0;
 
-        ArrayList<Integer> leftList = partition.getLeft();
-
         for (int i = 0; i < lens.getNumObs(); i++) {
-            if (leftList.contains((int) lens.getZ(i, indexSplitVariable))) { // If this obs value of the splitting variable is in the left partition
+            if (partition.isLeft(lens.getCategory(i, indexSplitVariable))) { // If this obs value of the splitting variable is in the left partition
                 countLeft++;
             } else {
                 countRight++;
@@ -83,7 +108,7 @@ public abstract class MomentPartitionObj {
         countRight = 0;
         countLeft = 0;
         for (int i = 0; i < lens.getNumObs(); i++) {
-            if (leftList.contains((int) lens.getZ(i, indexSplitVariable))) {
+            if (partition.isLeft(lens.getCategory(i, indexSplitVariable))) {
                 observationIndicesLeftSplit[countLeft] = i;
                 countLeft++;
             } else {
@@ -102,8 +127,7 @@ public abstract class MomentPartitionObj {
 //        System.out.println();
         
         //Create new data lens for left and right split
-        DataLens left = lens.getDataLensSubset(observationIndicesLeftSplit);
-        DataLens right = lens.getDataLensSubset(observationIndicesRightSplit);
+        SplitContainer split = lens.getDataSplit(observationIndicesLeftSplit, observationIndicesRightSplit);
 
         String leftVars = "";
         for (int i : partition.getLeft()) {
@@ -120,7 +144,7 @@ public abstract class MomentPartitionObj {
 //        System.out.println(right);
 //        System.exit(0);
 
-        return new SplitContainer(left, right);
+        return split;
     }
 
 }
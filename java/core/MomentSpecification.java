@@ -43,6 +43,15 @@ public interface MomentSpecification {
 
     public ContainerMoment computeOptimalBeta(DataLens lens, boolean allParametersHomogeneous);
 
+    /**
+     * Same as computeOptimalBeta(lens, allParametersHomogeneous), with a
+     * starting value for iterative estimators (for example the parent node's
+     * estimate). Closed-form estimators can ignore it.
+     */
+    default ContainerMoment computeOptimalBeta(DataLens lens, boolean allParametersHomogeneous, Jama.Matrix startingBeta) {
+        return computeOptimalBeta(lens, allParametersHomogeneous);
+    }
+
     //  public void generateData(int numObs, Random rng, boolean addNoise);
     // public Jama.Matrix getY(boolean residualizeY);
     public Jama.Matrix getY();
@@ -51,6 +60,18 @@ public interface MomentSpecification {
 
     public Jama.Matrix getZ();
 
+    /**
+     * Backing store of the data the forest is grown on. The default copies
+     * getX(), getY() and getZ() on every call, so a specification should
+     * build its store once and keep it until loadData replaces the data. A
+     * specification whose loadData points at a columnar file returns a
+     * MappedColumnStore opened on it instead, and never builds the Jama
+     * matrices.
+     */
+    default ColumnStore getColumnStore() {
+        return new HeapColumnStore(getX(), getY(), getZ());
+    }
+
     public Jama.Matrix getBalancingVector();
 
     public int numberoftrees();
@@ -59,6 +80,25 @@ public interface MomentSpecification {
 
     public Boolean[] getDiscreteVector();
 
+    /**
+     * How splits along variable k of Z are searched. The default follows
+     * getDiscreteVector(); a specification marks ordered categorical
+     * variables ORDINAL here (and false in getDiscreteVector()).
+     */
+    default VariableType getVariableType(int k) {
+        return getDiscreteVector()[k] ? VariableType.NOMINAL : VariableType.CONTINUOUS;
+    }
+
+    /**
+     * Whether this specification's containers honor DataLens.getWeight(i),
+     * so that a bootstrap sample can be passed as distinct rows with
+     * multiplicities instead of duplicated indices. Off unless a
+     * specification opts in.
+     */
+    default boolean isWeightedLensSupported() {
+        return false;
+    }
+
     /**
      * Return the true \beta at a given vector z_i
      * 
@@ -105,7 +145,7 @@ public interface MomentSpecification {
         MomentForest myForest;
 
                
-        DataLens originalDataLens = new DataLens(getX(), getY(), getZ(), null);
+        DataLens originalDataLens = new DataLens(getColumnStore(), null);
         DataLens[] twoLenses = originalDataLens.randomlySplitSample(0.8, rngBaseSeedOutOfSample);
         
         DataLens homogenizedForestLens = twoLenses[0];
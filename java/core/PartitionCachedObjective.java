@@ -0,0 +1,167 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2025 Stephen P. Ryan <stephen.p.ryan@wustl.edu>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package core;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import optimization.Fmin_methods;
+
+/**
+ * Wraps a continuous split objective so that thresholds falling between the
+ * same pair of adjacent observed values, which produce the same left/right
+ * partition, are only fit once. Each threshold is canonicalized to the number
+ * of observations with z below it (the SplitRule sends z < splitPoint left),
+ * and repeated partitions are served from the cache.
+ *
+ * Only the objective value is cached; call the wrapped objective directly at
+ * the chosen split point to leave its left/right fits set.
+ *
+ * @author Stephen P. Ryan <stephen.p.ryan@wustl.edu>
+ */
+public class PartitionCachedObjective implements Fmin_methods {
+
+    private final MomentContinuousSplitObj obj;
+    private final double[] sortedZ;
+    /**
+     * cumulativeWeight[r] is the weighted count of the r smallest
+     * observations, so minimum-count checks see the same weighted sample size
+     * as the objectives
+     */
+    private final int[] cumulativeWeight;
+    private final HashMap<Integer, Double> cache = new HashMap<>();
+    private int numEvaluations = 0;
+    private double optimalValue = Double.POSITIVE_INFINITY;
+
+    public PartitionCachedObjective(MomentContinuousSplitObj obj, DataLens lens, int indexSplitVariable) {
+        this.obj = obj;
+        int n = lens.getNumObs();
+        sortedZ = new double[n];
+        cumulativeWeight = new int[n + 1];
+        int[] sortIndex = lens.getSortedIndex(indexSplitVariable);
+        if (sortIndex == null && lens.isWeighted()) {
+            // weights have to follow the z order, so sort positions rather than values
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(lens.getZ(a, indexSplitVariable), lens.getZ(b, indexSplitVariable)));
+            sortIndex = new int[n];
+            for (int i = 0; i < n; i++) {
+                sortIndex[i] = order[i];
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            sortedZ[i] = lens.getZ(sortIndex == null ? i : sortIndex[i], indexSplitVariable);
+            cumulativeWeight[i + 1] = cumulativeWeight[i] + lens.getWeight(sortIndex == null ? i : sortIndex[i]);
+        }
+        if (sortIndex == null) {
+            Arrays.sort(sortedZ); // unweighted: every weight is one, so the order of cumulativeWeight does not matter
+        }
+    }
+
+    /**
+     * @return Number of observations with z strictly below splitPoint
+     */
+    private int getNumObsLeft(double splitPoint) {
+        int low = 0;
+        int high = sortedZ.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedZ[mid] < splitPoint) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public double f_to_minimize(double splitPoint) {
+        int key = getNumObsLeft(splitPoint);
+        Double f = cache.get(key);
+        if (f == null) {
+            f = obj.f_to_minimize(splitPoint);
+            cache.put(key, f);
+            numEvaluations++;
+        }
+        return f;
+    }
+
+    /**
+     * Exact search for small nodes: evaluate the midpoint between every pair
+     * of adjacent distinct values, restricted to thresholds leaving a weighted
+     * count of at least minCount on each side (the same test the objectives
+     * apply through getWeightedNumObs). Ties go to the lowest threshold.
+     *
+     * @param minCount Minimum number of observations in each partition
+     * @return Optimal split point, or positive infinity if no threshold is
+     * feasible; the objective there is available from getOptimalValue()
+     */
+    public double enumerateMidpoints(int minCount) {
+        int n = sortedZ.length;
+        double optimalSplit = Double.POSITIVE_INFINITY;
+        optimalValue = Double.POSITIVE_INFINITY;
+        int total = cumulativeWeight[n];
+        int minWeight = Math.max(1, minCount);
+        for (int r = 1; r < n; r++) {
+            if (cumulativeWeight[r] < minWeight) {
+                continue;
+            }
+            if (total - cumulativeWeight[r] < minWeight) {
+                break;
+            }
+            double zLower = sortedZ[r - 1];
+            double zUpper = sortedZ[r];
+            if (zLower == zUpper) {
+                continue;
+            }
+            double splitPoint = 0.5 * (zLower + zUpper);
+            if (splitPoint <= zLower) {
+                splitPoint = zUpper;
+            }
+            double f = f_to_minimize(splitPoint);
+            if (f < optimalValue || optimalSplit == Double.POSITIVE_INFINITY) {
+                optimalValue = f;
+                optimalSplit = splitPoint;
+            }
+        }
+        return optimalSplit;
+    }
+
+    /**
+     * @return Objective at the split point returned by enumerateMidpoints
+     */
+    public double getOptimalValue() {
+        return optimalValue;
+    }
+
+    /**
+     * @return Number of distinct partitions actually fit
+     */
+    public int getNumEvaluations() {
+        return numEvaluations;
+    }
+
+}
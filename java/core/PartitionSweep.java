@@ -0,0 +1,257 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2025 Stephen P. Ryan <stephen.p.ryan@wustl.edu>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Scores bipartitions of a discrete variable's categories for a least-squares
+ * moment without refitting from the data. X'X, X'y and y'y are accumulated
+ * once per category. When every bipartition is wanted they are visited in
+ * reflected Gray-code order, so consecutive partitions differ by one category
+ * and each step is one add/subtract of that category's sums; any other list
+ * (a sample, or the splits of an ordering) sums its categories directly.
+ *
+ * Every bipartition is scored straight from the bitmasks of
+ * DisjointSet.getBipartitionMasks, and results are indexed in that order;
+ * no IntegerPartition is built until getPartition asks for one (the
+ * winner's). A list of partitions is indexed like the list. Either way the
+ * caller can pick the winner (and break ties) exactly as it does when
+ * refitting each partition.
+ *
+ * @author Stephen P. Ryan <stephen.p.ryan@wustl.edu>
+ */
+public class PartitionSweep {
+
+    private final int n;
+    private final int minCount;
+    private final double minProportion;
+    private final int minObs;
+    private final boolean minimumNorm;
+
+    private final ArrayList<Integer> categories;
+    /**
+     * Partitions scored, or null when scoring every bipartition of masks
+     */
+    private final ArrayList<IntegerPartition> partitions;
+    private final long[] masks;
+
+    private final double[] sse;
+    private final double[] leftSSE;
+    private final double[] rightSSE;
+    private final int[] numObsLeft;
+    private final int[] numObsRight;
+
+    /**
+     * Scores every bipartition of the categories, in the order of
+     * DisjointSet.getBipartitionMasks.
+     *
+     * @param obj Objective supplying the least-squares sweep hooks
+     * @param lens Node being split
+     * @param indexSplitVariable Discrete variable
+     * @param categories Categories of the variable present in the node (at
+     * most 31)
+     * @param minCount Minimum number of observations in each partition
+     * @param minProportion Minimum proportion of observations in each
+     * partition
+     */
+    public PartitionSweep(LeastSquaresSweepObjective obj, DataLens lens, int indexSplitVariable, ArrayList<Integer> categories,
+            int minCount, double minProportion) {
+        this(obj, lens, indexSplitVariable, categories, null, minCount, minProportion);
+    }
+
+    /**
+     * @param obj Objective supplying the least-squares sweep hooks
+     * @param lens Node being split
+     * @param indexSplitVariable Discrete variable
+     * @param categories Categories of the variable present in the node
+     * @param partitions Bipartitions of the categories to score, or null for
+     * all of them
+     * @param minCount Minimum number of observations in each partition
+     * @param minProportion Minimum proportion of observations in each
+     * partition
+     */
+    public PartitionSweep(LeastSquaresSweepObjective obj, DataLens lens, int indexSplitVariable, ArrayList<Integer> categories,
+            ArrayList<IntegerPartition> partitions, int minCount, double minProportion) {
+        int m = categories.size();
+        int p = obj.getSweepDimension();
+        this.n = lens.getWeightedNumObs();
+        this.minCount = minCount;
+        this.minProportion = minProportion;
+        this.minObs = obj.getSweepMinimumObservations();
+        this.minimumNorm = obj.isMinimumNormFit();
+        this.categories = categories;
+        this.partitions = partitions;
+        if (partitions == null && m > 31) {
+            throw new IllegalArgumentException("Too many categories to score every bipartition: " + m);
+        }
+        this.masks = partitions == null ? DisjointSet.getBipartitionMasks(m) : null;
+
+        HashMap<Integer, Integer> categoryIndex = new HashMap<>();
+        for (int c = 0; c < m; c++) {
+            categoryIndex.put(categories.get(c), c);
+        }
+        LinearSufficientStatistics[] categoryStatistics = new LinearSufficientStatistics[m];
+        for (int c = 0; c < m; c++) {
+            categoryStatistics[c] = new LinearSufficientStatistics(p, minimumNorm);
+        }
+        double[] xi = new double[p];
+        CategoryBuckets buckets = lens.getCategoryBuckets(indexSplitVariable);
+        if (buckets != null) {
+            for (int b = 0; b < buckets.getNumCategories(); b++) {
+                LinearSufficientStatistics s = categoryStatistics[categoryIndex.get(buckets.getCategory(b))];
+                for (int i : buckets.getPositions(b)) {
+                    s.add(xi, obj.getSweepObservation(lens, i, xi), lens.getWeight(i));
+                }
+            }
+        } else {
+            for (int i = 0; i < lens.getNumObs(); i++) {
+                int c = categoryIndex.get(lens.getCategory(i, indexSplitVariable));
+                categoryStatistics[c].add(xi, obj.getSweepObservation(lens, i, xi), lens.getWeight(i));
+            }
+        }
+
+        int numPartitions = getNumPartitions();
+        sse = new double[numPartitions];
+        leftSSE = new double[numPartitions];
+        rightSSE = new double[numPartitions];
+        numObsLeft = new int[numPartitions];
+        numObsRight = new int[numPartitions];
+
+        if (partitions == null) {
+            grayCodeSweep(categoryStatistics, p);
+        } else {
+            LinearSufficientStatistics total = new LinearSufficientStatistics(p, minimumNorm);
+            for (int c = 0; c < m; c++) {
+                total.add(categoryStatistics[c]);
+            }
+            for (int j = 0; j < partitions.size(); j++) {
+                LinearSufficientStatistics left = new LinearSufficientStatistics(p, minimumNorm);
+                for (int category : partitions.get(j).getLeft()) {
+                    left.add(categoryStatistics[categoryIndex.get(category)]);
+                }
+                LinearSufficientStatistics right = new LinearSufficientStatistics(p, minimumNorm);
+                right.add(total);
+                right.subtract(left);
+                score(j, left, right);
+            }
+        }
+    }
+
+    /**
+     * Visits every bipartition, identified by the set of categories on the
+     * opposite side from the first category (bit c-1 for category c).
+     */
+    private void grayCodeSweep(LinearSufficientStatistics[] categoryStatistics, int p) {
+        int m = categories.size();
+        if (m < 2) {
+            return;
+        }
+        int oppositeBits = (1 << (m - 1)) - 1;
+        int[] partitionOfMask = new int[1 << (m - 1)];
+        for (int j = 0; j < masks.length; j++) {
+            int group = (int) masks[j];
+            int opposite = (group & 1) != 0 ? ~group : group;
+            partitionOfMask[(opposite >>> 1) & oppositeBits] = j;
+        }
+
+        // "with" holds the first category's side, "without" the other side
+        LinearSufficientStatistics with = new LinearSufficientStatistics(p, minimumNorm);
+        LinearSufficientStatistics without = new LinearSufficientStatistics(p, minimumNorm);
+        for (int c = 0; c < m; c++) {
+            with.add(categoryStatistics[c]);
+        }
+
+        int mask = 0;
+        for (int t = 1; t < (1 << (m - 1)); t++) {
+            int c = Integer.numberOfTrailingZeros(t) + 1;
+            mask ^= 1 << (c - 1);
+            if ((mask & (1 << (c - 1))) != 0) {
+                with.subtract(categoryStatistics[c]);
+                without.add(categoryStatistics[c]);
+            } else {
+                without.subtract(categoryStatistics[c]);
+                with.add(categoryStatistics[c]);
+            }
+
+            int j = partitionOfMask[mask];
+            if ((masks[j] & 1L) != 0) {
+                score(j, with, without);
+            } else {
+                score(j, without, with);
+            }
+        }
+    }
+
+    private void score(int j, LinearSufficientStatistics left, LinearSufficientStatistics right) {
+        numObsLeft[j] = left.getNumObs();
+        numObsRight[j] = right.getNumObs();
+
+        // same rejections as scoring a MomentPartitionObj, then the container's own minimum size
+        if (numObsLeft[j] < minCount || numObsRight[j] < minCount
+                || (numObsLeft[j] + 0.0) / n < minProportion || (numObsRight[j] + 0.0) / n < minProportion) {
+            leftSSE[j] = Double.POSITIVE_INFINITY;
+            rightSSE[j] = Double.POSITIVE_INFINITY;
+            sse[j] = Double.POSITIVE_INFINITY;
+            return;
+        }
+        leftSSE[j] = numObsLeft[j] < minObs ? Double.POSITIVE_INFINITY : left.getSSE();
+        rightSSE[j] = numObsRight[j] < minObs ? Double.POSITIVE_INFINITY : right.getSSE();
+        sse[j] = leftSSE[j] + rightSSE[j];
+    }
+
+    public int getNumPartitions() {
+        return partitions == null ? masks.length : partitions.size();
+    }
+
+    /**
+     * @return the partition scored at partitionIndex (built from its mask
+     * when every bipartition was scored)
+     */
+    public IntegerPartition getPartition(int partitionIndex) {
+        return partitions == null ? DisjointSet.getPartition(categories, masks[partitionIndex]) : partitions.get(partitionIndex);
+    }
+
+    public double getSSE(int partitionIndex) {
+        return sse[partitionIndex];
+    }
+
+    public double getLeftSSE(int partitionIndex) {
+        return leftSSE[partitionIndex];
+    }
+
+    public double getRightSSE(int partitionIndex) {
+        return rightSSE[partitionIndex];
+    }
+
+    public int getNumObsLeft(int partitionIndex) {
+        return numObsLeft[partitionIndex];
+    }
+
+    public int getNumObsRight(int partitionIndex) {
+        return numObsRight[partitionIndex];
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2025 Stephen P. Ryan <stephen.p.ryan@wustl.edu>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package core;
+
+import java.util.HashMap;
+
+/**
+ * Bootstrap multiplicities of the distinct rows a weighted lens holds. The
+ * drawn rows are marked in a bitset over the backing store, with a running
+ * count of marked rows before each 64-row word, so a row's rank among the
+ * drawn rows is one lookup and a bit count. Multiplicities are stored by
+ * rank, one unsigned byte each; the few rows drawn 255 times or more keep
+ * their count in a map. All told this is under a third of an int per
+ * backing row plus a byte per drawn row, where an int per backing row would
+ * be more than the duplicated index array a plain bootstrap holds.
+ *
+ * Filled while the lens is built and only read afterwards, so every lens
+ * split from it can share one instance across threads.
+ *
+ * @author Stephen P. Ryan <stephen.p.ryan@wustl.edu>
+ */
+class RowWeights {
+
+    private static final int OVERFLOW = 255;
+
+    private final long[] drawn;
+    private final int[] rankBefore;
+    private final byte[] count;
+    private final HashMap<Integer, Integer> overflowCount = new HashMap<>();
+    private final int numDistinct;
+
+    /**
+     * @param drawn Bit r of word r / 64 set when backing row r was drawn;
+     * kept, not copied
+     */
+    RowWeights(long[] drawn) {
+        this.drawn = drawn;
+        rankBefore = new int[drawn.length];
+        int rank = 0;
+        for (int w = 0; w < drawn.length; w++) {
+            rankBefore[w] = rank;
+            rank += Long.bitCount(drawn[w]);
+        }
+        numDistinct = rank;
+        count = new byte[numDistinct];
+    }
+
+    /**
+     * @return Number of distinct rows drawn
+     */
+    int getNumDistinct() {
+        return numDistinct;
+    }
+
+    /**
+     * @return The drawn rows in backing-store order
+     */
+    int[] getRows() {
+        int[] rows = new int[numDistinct];
+        int counter = 0;
+        for (int w = 0; w < drawn.length; w++) {
+            long bits = drawn[w];
+            while (bits != 0) {
+                rows[counter] = (w << 6) + Long.numberOfTrailingZeros(bits);
+                counter++;
+                bits &= bits - 1;
+            }
+        }
+        return rows;
+    }
+
+    private int rank(int row) {
+        return rankBefore[row >>> 6] + Long.bitCount(drawn[row >>> 6] & ((1L << row) - 1));
+    }
+
+    /**
+     * Count one more draw of a marked row.
+     */
+    void add(int row) {
+        int r = rank(row);
+        int c = count[r] & 0xFF;
+        if (c < OVERFLOW) {
+            count[r] = (byte) (c + 1);
+            if (c + 1 == OVERFLOW) {
+                overflowCount.put(r, OVERFLOW);
+            }
+        } else {
+            overflowCount.put(r, overflowCount.get(r) + 1);
+        }
+    }
+
+    /**
+     * @param row Backing row
+     * @return Number of times the row was drawn (0 if it was not)
+     */
+    int get(int row) {
+        if ((drawn[row >>> 6] & (1L << row)) == 0) {
+            return 0;
+        }
+        int r = rank(row);
+        int c = count[r] & 0xFF;
+        return c < OVERFLOW ? c : overflowCount.get(r);
+    }
+
+}
@@ -0,0 +1,231 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2025 Stephen P. Ryan <stephen.p.ryan@wustl.edu>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package core;
+
+/**
+ * Best split found along a single variable: the split point (or, for a
+ * discrete variable, the index of the partition), the fit it generates and,
+ * when the moment keeps them, the estimated left and right containers. The
+ * winning candidate's child lenses and fits are handed to the child nodes so
+ * that the data just fitted during the search is not fit again.
+ *
+ * @author Stephen P. Ryan <stephen.p.ryan@wustl.edu>
+ */
+public class SplitCandidate {
+
+    private final int indexSplitVariable;
+    private final double splitPoint;
+    private final MomentPartitionObj partitionObj;
+    private final IntegerPartition partition;
+    private final double sse;
+    private double leftSSE;
+    private double rightSSE;
+    private int numObsLeft;
+    private int numObsRight;
+    private ContainerMoment leftFit;
+    private ContainerMoment rightFit;
+    private MomentContinuousSplitObj unevaluatedObj;
+
+    /**
+     * Candidate along a continuous variable. If the search did not leave obj
+     * at splitPoint, the sides are only fit when evaluate() is called, so
+     * that only the winning variable pays for the refit.
+     *
+     * @param atSplitPoint Whether obj was last evaluated at splitPoint
+     */
+    public SplitCandidate(int indexSplitVariable, double splitPoint, double sse, MomentContinuousSplitObj obj, boolean atSplitPoint) {
+        this.indexSplitVariable = indexSplitVariable;
+        this.splitPoint = splitPoint;
+        this.partitionObj = null;
+        this.partition = null;
+        this.sse = sse;
+        if (atSplitPoint) {
+            readSides(obj);
+        } else {
+            unevaluatedObj = obj;
+        }
+    }
+
+    /**
+     * Candidate partition of a discrete variable, read off the objective
+     * after it has been scored.
+     */
+    public SplitCandidate(int indexSplitVariable, int partitionIndex, double sse, MomentPartitionObj obj) {
+        this.indexSplitVariable = indexSplitVariable;
+        this.splitPoint = partitionIndex;
+        this.partitionObj = obj;
+        this.partition = obj.partition;
+        this.sse = sse;
+        this.leftSSE = obj.getLeftSSE();
+        this.rightSSE = obj.getRightSSE();
+        this.numObsLeft = obj.getEffectiveNumObsLeft();
+        this.numObsRight = obj.getEffectiveNumObsRight();
+        this.leftFit = obj.getLeftFit();
+        this.rightFit = obj.getRightFit();
+    }
+
+    /**
+     * Candidate partition of a discrete variable scored by a PartitionSweep;
+     * the data is only split if the candidate is taken, and the children fit
+     * their own data.
+     */
+    public SplitCandidate(int indexSplitVariable, int partitionIndex, PartitionSweep sweep) {
+        this.indexSplitVariable = indexSplitVariable;
+        this.splitPoint = partitionIndex;
+        this.partitionObj = null;
+        this.partition = sweep.getPartition(partitionIndex);
+        this.sse = sweep.getSSE(partitionIndex);
+        this.leftSSE = sweep.getLeftSSE(partitionIndex);
+        this.rightSSE = sweep.getRightSSE(partitionIndex);
+        this.numObsLeft = sweep.getNumObsLeft(partitionIndex);
+        this.numObsRight = sweep.getNumObsRight(partitionIndex);
+        this.leftFit = null;
+        this.rightFit = null;
+    }
+
+    /**
+     * The better of two candidates: the lower SSE, then the lower split
+     * variable index, then the lower split point (or partition index). The
+     * order is total, so a reduction picks the same candidate whether it
+     * runs serially or in parallel.
+     *
+     * @param a First candidate
+     * @param b Second candidate
+     * @return The preferred candidate
+     */
+    public static SplitCandidate better(SplitCandidate a, SplitCandidate b) {
+        int c = Double.compare(a.sse, b.sse);
+        if (c == 0) {
+            c = Integer.compare(a.indexSplitVariable, b.indexSplitVariable);
+        }
+        if (c == 0) {
+            c = Double.compare(a.splitPoint, b.splitPoint);
+        }
+        return c <= 0 ? a : b;
+    }
+
+    /**
+     * Take this split: the node's window of the index arena is partitioned
+     * in place and the children are windows into it.
+     *
+     * @param lens Node being split
+     * @return Child lenses for this split
+     */
+    public SplitContainer getDataSplit(DataLens lens) {
+        if (partitionObj != null) {
+            SplitContainer scored = partitionObj.getDataSplit();
+            if (scored.getLeftPositions() == null || scored.getRightPositions() == null) {
+                return scored;
+            }
+            return lens.partitionInPlace(scored.getLeftPositions(), scored.getRightPositions());
+        }
+        if (partition != null) {
+            int[][] positions = lens.getPartitionPositions(indexSplitVariable, partition);
+            return lens.partitionInPlace(positions[0], positions[1]);
+        }
+        return SplitContainer.partitionContinuousSplit(lens, splitPoint, indexSplitVariable);
+    }
+
+    /**
+     * Fit the two sides of a continuous candidate whose search left its
+     * objective elsewhere. The side statistics and fits below are only
+     * available once this has been called on the chosen candidate.
+     */
+    public void evaluate() {
+        if (unevaluatedObj != null) {
+            unevaluatedObj.f_to_minimize(splitPoint);
+            readSides(unevaluatedObj);
+            unevaluatedObj = null;
+        }
+    }
+
+    private void readSides(MomentContinuousSplitObj obj) {
+        leftSSE = obj.getLeftSSE();
+        rightSSE = obj.getRightSSE();
+        numObsLeft = obj.getEffectiveNumObsLeft();
+        numObsRight = obj.getEffectiveNumObsRight();
+        leftFit = obj.getLeftFit();
+        rightFit = obj.getRightFit();
+    }
+
+    public boolean isDiscrete() {
+        return partition != null;
+    }
+
+    /**
+     * @return the partition of the discrete variable (null if continuous)
+     */
+    public IntegerPartition getPartition() {
+        return partition;
+    }
+
+    public int getIndexSplitVariable() {
+        return indexSplitVariable;
+    }
+
+    /**
+     * @return the split point, or the index of the partition for a discrete
+     * variable
+     */
+    public double getSplitPoint() {
+        return splitPoint;
+    }
+
+    public double getSSE() {
+        return sse;
+    }
+
+    public double getLeftSSE() {
+        return leftSSE;
+    }
+
+    public double getRightSSE() {
+        return rightSSE;
+    }
+
+    public int getNumObsLeft() {
+        return numObsLeft;
+    }
+
+    public int getNumObsRight() {
+        return numObsRight;
+    }
+
+    /**
+     * @return the fit on the left child's data, or null if the moment does
+     * not keep it
+     */
+    public ContainerMoment getLeftFit() {
+        return leftFit;
+    }
+
+    /**
+     * @return the fit on the right child's data, or null if the moment does
+     * not keep it
+     */
+    public ContainerMoment getRightFit() {
+        return rightFit;
+    }
+
+}
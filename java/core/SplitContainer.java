@@ -1,103 +1,224 @@
-/*
- * The MIT License
- *
- * Copyright 2018 Stephen P. Ryan <stephen.p.ryan@wustl.edu>.
- *
- * Permission is hereby granted, free of charge, to any person obtaining a copy
- * of this software and associated documentation files (the "Software"), to deal
- * in the Software without restriction, including without limitation the rights
- * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
- * copies of the Software, and to permit persons to whom the Software is
- * furnished to do so, subject to the following conditions:
- *
- * The above copyright notice and this permission notice shall be included in
- * all copies or substantial portions of the Software.
- *
- * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
- * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
- * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
- * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
- * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
- * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
- * THE SOFTWARE.
- */
-package core;
-
-/**
- *
- * @author Stephen P. Ryan <stephen.p.ryan@wustl.edu>
- */
-public class SplitContainer {
-
-    private final DataLens left;
-    private final DataLens right;
-
-    public SplitContainer(DataLens left, DataLens right) {
-        this.left = left;
-        this.right = right;
-    }
-
-    public DataLens getLeft() {
-        return left;
-    }
-
-    public DataLens getRight() {
-        return right;
-    }
-
-    public double getMinimumProportionDataInPartition() {
-        double total = (double) left.getNumObs() + (double) right.getNumObs();
-        double proportionLeft = (double) left.getNumObs() / total;
-        // System.out.println(xLeft.getNumObs()+" "+xRight.getNumObs()+" "+total+" "+proportionLeft);
-        return Math.min(proportionLeft, 1.0 - proportionLeft);
-    }
-
-    public int getMinimumCountInEachPartition() {
-        return Math.min(left.getNumObs(), right.getNumObs());
-    }
-
-    public static SplitContainer getContinuousDataSplit(DataLens lens, double splitPoint, int indexSplitVariable) {
-        // System.out.println("indexSplitVariable: " + indexSplitVariable + " splitPoint: " + splitPoint);
-        int countLeft = 0;
-        int countRight = 0;
-
-        for (int i = 0; i < lens.getNumObs(); i++) {
-            if (lens.getZ(i, indexSplitVariable) < splitPoint) {
-                countLeft++;
-            } else {
-                countRight++;
-            }
-        }
-
-        int[] indicesObservationsForLeftSplit = new int[countLeft];
-        int[] indicesObservationsForRightSplit = new int[countRight];
-
-        countRight = 0;
-        countLeft = 0;
-        for (int i = 0; i < lens.getNumObs(); i++) {
-            // System.out.print(lens.getZ(i, indexSplitVariable)+" -> ");
-            if (lens.getZ(i, indexSplitVariable) < splitPoint) {
-                indicesObservationsForLeftSplit[countLeft] = lens.dataIndex[i];
-                countLeft++;
-                // System.out.println("left");
-            } else {
-                indicesObservationsForRightSplit[countRight] = lens.dataIndex[i];
-                countRight++;
-                // System.out.println("right");
-            }
-        }
-        
-        DataLens left = new DataLens(lens, indicesObservationsForLeftSplit);
-        DataLens right = new DataLens(lens, indicesObservationsForRightSplit);
-        
-//        System.out.println("Index to split "+indexSplitVariable+" split point: "+splitPoint);
-//        System.out.println("Left:");
-//        System.out.println(left);
-//        System.out.println("Right:");
-//        System.out.println(right);
-//        System.exit(0);
-        
-        return new SplitContainer(left, right);
-    }
-
-}
\ No newline at end of file
+/*
+ * The MIT License
+ *
+ * Copyright 2018 Stephen P. Ryan <stephen.p.ryan@wustl.edu>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package core;
+
+import java.util.Arrays;
+
+/**
+ *
+ * @author Stephen P. Ryan <stephen.p.ryan@wustl.edu>
+ */
+public class SplitContainer {
+
+    private final DataLens left;
+    private final DataLens right;
+    private int[] leftPositions;
+    private int[] rightPositions;
+
+    public SplitContainer(DataLens left, DataLens right) {
+        this.left = left;
+        this.right = right;
+    }
+
+    /**
+     * @param left Left lens
+     * @param right Right lens
+     * @param leftPositions Positions in the parent lens of each observation
+     * in the left lens
+     * @param rightPositions Positions in the parent lens of each observation
+     * in the right lens
+     */
+    public SplitContainer(DataLens left, DataLens right, int[] leftPositions, int[] rightPositions) {
+        this.left = left;
+        this.right = right;
+        this.leftPositions = leftPositions;
+        this.rightPositions = rightPositions;
+    }
+
+    /**
+     * Pass the parent's presorted order (if any) down to both sides. Only
+     * called for the split that is actually taken, not for every candidate.
+     *
+     * @param parent Lens that was split
+     */
+    void inheritSortedIndex(DataLens parent) {
+        if (leftPositions != null && rightPositions != null) {
+            left.inheritSortedIndex(parent, leftPositions);
+            right.inheritSortedIndex(parent, rightPositions);
+        }
+    }
+
+    /**
+     * Pass the parent's category buckets (if any) down to both sides.
+     *
+     * @param parent Lens that was split
+     */
+    void inheritCategoryBuckets(DataLens parent) {
+        if (leftPositions != null && rightPositions != null) {
+            left.inheritCategoryBuckets(parent, leftPositions);
+            right.inheritCategoryBuckets(parent, rightPositions);
+        }
+    }
+
+    public DataLens getLeft() {
+        return left;
+    }
+
+    public DataLens getRight() {
+        return right;
+    }
+
+    public double getMinimumProportionDataInPartition() {
+        double total = (double) left.getWeightedNumObs() + (double) right.getWeightedNumObs();
+        double proportionLeft = (double) left.getWeightedNumObs() / total;
+        // System.out.println(xLeft.getNumObs()+" "+xRight.getNumObs()+" "+total+" "+proportionLeft);
+        return Math.min(proportionLeft, 1.0 - proportionLeft);
+    }
+
+    public int getMinimumCountInEachPartition() {
+        return Math.min(left.getWeightedNumObs(), right.getWeightedNumObs());
+    }
+
+    int[] getLeftPositions() {
+        return leftPositions;
+    }
+
+    int[] getRightPositions() {
+        return rightPositions;
+    }
+
+    /**
+     * Split for scoring a candidate split point: one new index array holds
+     * the left rows then the right rows, and each side is a window into it.
+     * The node's own rows are not touched (see partitionContinuousSplit for
+     * the split that is taken).
+     */
+    public static SplitContainer getContinuousDataSplit(DataLens lens, double splitPoint, int indexSplitVariable) {
+        return getContinuousDataSplit(lens, splitPoint, indexSplitVariable, new int[lens.getNumObs()]);
+    }
+
+    /**
+     * Same split, written into rows (length at least lens.getNumObs()) so a
+     * search scoring many candidates can reuse one array. The lenses returned
+     * are only valid until rows is written again.
+     */
+    static SplitContainer getContinuousDataSplit(DataLens lens, double splitPoint, int indexSplitVariable, int[] rows) {
+        // System.out.println("indexSplitVariable: " + indexSplitVariable + " splitPoint: " + splitPoint);
+        int n = lens.getNumObs();
+        int[] sorted = lens.getSortedIndex(indexSplitVariable);
+        int countLeft;
+        if (sorted != null) {
+            /**
+             * With a presorted lens the partition is a binary search for the
+             * first z >= splitPoint; both sides come out in z order
+             */
+            countLeft = getSortedSplitPosition(lens, sorted, splitPoint, indexSplitVariable);
+            for (int i = 0; i < n; i++) {
+                rows[i] = lens.dataIndex[lens.offset + sorted[i]];
+            }
+        } else {
+            countLeft = 0;
+            ColumnStore data = lens.getColumnStore(); // read the backing store directly
+            for (int i = 0; i < n; i++) {
+                if (data.getZ(lens.dataIndex[lens.offset + i], indexSplitVariable) < splitPoint) {
+                    countLeft++;
+                }
+            }
+            int left = 0;
+            int right = countLeft;
+            for (int i = 0; i < n; i++) {
+                int row = lens.dataIndex[lens.offset + i];
+                if (data.getZ(row, indexSplitVariable) < splitPoint) {
+                    rows[left] = row;
+                    left++;
+                } else {
+                    rows[right] = row;
+                    right++;
+                }
+            }
+        }
+
+//        System.out.println("Index to split "+indexSplitVariable+" split point: "+splitPoint);
+//        System.out.println("Left:");
+//        System.out.println(left);
+//        System.out.println("Right:");
+//        System.out.println(right);
+//        System.exit(0);
+        
+        return new SplitContainer(new DataLens(lens, rows, 0, countLeft), new DataLens(lens, rows, countLeft, n - countLeft));
+    }
+
+    /**
+     * The split a node actually takes: same sides and order as
+     * getContinuousDataSplit, but partitioned in place in the node's window
+     * of the tree's index arena.
+     */
+    static SplitContainer partitionContinuousSplit(DataLens lens, double splitPoint, int indexSplitVariable) {
+        int[] sorted = lens.getSortedIndex(indexSplitVariable);
+        if (sorted != null) {
+            int low = getSortedSplitPosition(lens, sorted, splitPoint, indexSplitVariable);
+            return lens.partitionInPlace(Arrays.copyOfRange(sorted, 0, low), Arrays.copyOfRange(sorted, low, sorted.length));
+        }
+
+        int countLeft = 0;
+        for (int i = 0; i < lens.getNumObs(); i++) {
+            if (lens.getZ(i, indexSplitVariable) < splitPoint) {
+                countLeft++;
+            }
+        }
+        int[] positionsLeft = new int[countLeft];
+        int[] positionsRight = new int[lens.getNumObs() - countLeft];
+        int countRight = 0;
+        countLeft = 0;
+        for (int i = 0; i < lens.getNumObs(); i++) {
+            if (lens.getZ(i, indexSplitVariable) < splitPoint) {
+                positionsLeft[countLeft] = i;
+                countLeft++;
+            } else {
+                positionsRight[countRight] = i;
+                countRight++;
+            }
+        }
+        return lens.partitionInPlace(positionsLeft, positionsRight);
+    }
+
+    /**
+     * @return Number of observations with z below splitPoint, found by binary
+     * search on the presorted order
+     */
+    private static int getSortedSplitPosition(DataLens lens, int[] sorted, double splitPoint, int indexSplitVariable) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (lens.getZ(sorted[mid], indexSplitVariable) < splitPoint) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+}
@@ -26,11 +26,15 @@ package core;
 import JSci.maths.statistics.ChiSqrDistribution;
 import Jama.Matrix;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Collections;
 import java.util.Objects;
 import java.util.Random;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import optimization.Fmin;
@@ -68,7 +72,12 @@ public class TreeMoment {
     boolean verbose;
     boolean allParametersHomogeneous;
 
-    boolean useRandomForest = false;
+    private boolean parallelSplitSearch = false;
+    private int parallelSubtreeMinObs = 0;
+    private int exactSearchMaxObs = 0;
+    private int orderedSplitMinCategories = 0;
+    private int maxPartitionsPerVariable = 0;
+    private double splitVariablesPerNode = 0;
     boolean debugOptimization = false;
     private double currentNodeObjectiveFunction;
     private ContainerMoment currentNodeMoment;
@@ -89,7 +98,21 @@ public class TreeMoment {
             Boolean[] discreteVector, boolean verbose, double minProportionEachPartition,
             int minCountEachPartition, double improvementThreshold, boolean isLeft, int maxDepth,
             DataLens lensHonest, boolean testParameterHomogeneity, long treeSeed) {
+        this(parent, spec, lensGrowingTree, discreteVector, verbose, minProportionEachPartition, minCountEachPartition, improvementThreshold, isLeft, maxDepth,
+                lensHonest, testParameterHomogeneity, treeSeed, null);
+    }
+
+    /**
+     * @param nodeMoment Fit already estimated on lensGrowingTree (by the
+     * parent while scoring its split), or null to estimate it in
+     * determineSplit
+     */
+    public TreeMoment(TreeMoment parent, MomentSpecification spec, DataLens lensGrowingTree,
+            Boolean[] discreteVector, boolean verbose, double minProportionEachPartition,
+            int minCountEachPartition, double improvementThreshold, boolean isLeft, int maxDepth,
+            DataLens lensHonest, boolean testParameterHomogeneity, long treeSeed, ContainerMoment nodeMoment) {
         this.momentSpec = spec;
+        this.currentNodeMoment = nodeMoment;
         this.parent = parent;
         this.treeSeed = treeSeed;
         this.lensHonest = lensHonest;
@@ -107,6 +130,12 @@ public class TreeMoment {
             depth = 0;
         } else {
             depth = parent.getDepth() + 1;
+            parallelSplitSearch = parent.isParallelSplitSearch();
+            parallelSubtreeMinObs = parent.getParallelSubtreeMinObs();
+            exactSearchMaxObs = parent.getExactSearchMaxObs();
+            orderedSplitMinCategories = parent.getOrderedSplitMinCategories();
+            maxPartitionsPerVariable = parent.getMaxPartitionsPerVariable();
+            splitVariablesPerNode = parent.getSplitVariablesPerNode();
         }
 
         /**
@@ -167,6 +196,118 @@ public class TreeMoment {
         this.terminal = terminal;
     }
 
+    /**
+     * @return whether split variables (and the partitions of a discrete
+     * variable) are scored concurrently within each node
+     */
+    public boolean isParallelSplitSearch() {
+        return parallelSplitSearch;
+    }
+
+    /**
+     * Children created after this call inherit the setting.
+     *
+     * @param parallelSplitSearch the parallelSplitSearch to set
+     */
+    public void setParallelSplitSearch(boolean parallelSplitSearch) {
+        this.parallelSplitSearch = parallelSplitSearch;
+    }
+
+    /**
+     * @return the smallest node whose two subtrees are grown (and honestly
+     * estimated) as fork/join tasks; zero keeps the recursion sequential
+     */
+    public int getParallelSubtreeMinObs() {
+        return parallelSubtreeMinObs;
+    }
+
+    /**
+     * Children created after this call inherit the setting.
+     *
+     * @param parallelSubtreeMinObs the parallelSubtreeMinObs to set
+     */
+    public void setParallelSubtreeMinObs(int parallelSubtreeMinObs) {
+        this.parallelSubtreeMinObs = parallelSubtreeMinObs;
+    }
+
+    /**
+     * @return the largest node on which continuous variables are searched by
+     * enumerating the midpoints between distinct values; zero never does
+     */
+    public int getExactSearchMaxObs() {
+        return exactSearchMaxObs;
+    }
+
+    /**
+     * Children created after this call inherit the setting.
+     *
+     * @param exactSearchMaxObs the exactSearchMaxObs to set
+     */
+    public void setExactSearchMaxObs(int exactSearchMaxObs) {
+        this.exactSearchMaxObs = exactSearchMaxObs;
+    }
+
+    /**
+     * @return the number of categories at which a discrete variable is only
+     * split between neighbours in the ordering by mean residual; zero never
+     * does
+     */
+    public int getOrderedSplitMinCategories() {
+        return orderedSplitMinCategories;
+    }
+
+    /**
+     * Children created after this call inherit the setting.
+     *
+     * @param orderedSplitMinCategories the orderedSplitMinCategories to set
+     */
+    public void setOrderedSplitMinCategories(int orderedSplitMinCategories) {
+        this.orderedSplitMinCategories = orderedSplitMinCategories;
+    }
+
+    /**
+     * @return the largest number of bipartitions scored per discrete variable
+     * before a seeded random sample is scored instead; zero scores them all
+     */
+    public int getMaxPartitionsPerVariable() {
+        return maxPartitionsPerVariable;
+    }
+
+    /**
+     * Children created after this call inherit the setting.
+     *
+     * @param maxPartitionsPerVariable the maxPartitionsPerVariable to set
+     */
+    public void setMaxPartitionsPerVariable(int maxPartitionsPerVariable) {
+        this.maxPartitionsPerVariable = maxPartitionsPerVariable;
+    }
+
+    /**
+     * @return how many split variables each node draws to search (a count
+     * if at least one, a fraction if below one, all if zero)
+     */
+    public double getSplitVariablesPerNode() {
+        return splitVariablesPerNode;
+    }
+
+    /**
+     * Children created after this call inherit the setting.
+     *
+     * @param splitVariablesPerNode the splitVariablesPerNode to set
+     */
+    public void setSplitVariablesPerNode(double splitVariablesPerNode) {
+        this.splitVariablesPerNode = splitVariablesPerNode;
+    }
+
+    /**
+     * Whether the children of a node holding numObs observations should be
+     * processed as fork/join tasks rather than one after the other. Below
+     * the cutoff the task overhead outweighs the work in the subtree.
+     */
+    private boolean forkSubtrees(int numObs) {
+        return parallelSubtreeMinObs > 0 && numObs >= parallelSubtreeMinObs;
+    }
+
     //This method builds the tree
     public void determineSplit() {
         if (verbose) {
@@ -195,8 +336,14 @@ public class TreeMoment {
         if (verbose) {
             System.out.println("Computing baseline SSE");
         }
-        currentNodeMoment = momentSpec.computeOptimalBeta(lensGrowingTree, allParametersHomogeneous);
-        if (momentSpec.didEstimatorFail()) {
+        if (currentNodeMoment == null) {
+            currentNodeMoment = momentSpec.computeOptimalBeta(lensGrowingTree, allParametersHomogeneous, parent == null ? null : parent.getNodeEstimatedBeta()); // warm start from the parent
+        }
+        /**
+         * Read the failure flag off this node's own container: the flag on the
+         * specification is shared by sibling subtrees growing concurrently
+         */
+        if (currentNodeMoment.didEstimatorFail()) {
             System.out.println("Node optimal beta computation failed; TreeMoment setting itself to invalid");
             validTree = false;
         }
@@ -213,6 +360,13 @@ public class TreeMoment {
         }
         // System.out.println("Setting variance");
         // setNodeEstimatedVariance(currentNodeMoment.getVariance(getNodeEstimatedBeta()));
+        /**
+         * Keep only the numbers: a fit handed down by the parent sits on the
+         * parent's candidate index array, which should not live as long as
+         * this node does
+         */
+        double nodeGoodnessOfFit = currentNodeMoment.getGoodnessOfFit();
+        currentNodeMoment = null;
 
         /**
          * This is the place to set a priori conditions on growing the tree (max
@@ -229,7 +383,6 @@ public class TreeMoment {
             int numObsLeft = 0;
             int numObsRight = 0;
             int optimalSplitVariableIndex = 0;
-            int optimalDiscreteCollectionIndex = 0;
 
             /**
              * Go through all the discrete variables and compute all the
@@ -248,10 +401,13 @@ public class TreeMoment {
              * but that's how we have it set up right now
              */
             for (int k : momentSpec.getVariableIndicesToSearchOver()) { //The variables Z which we can split on
-                if (discreteVector[k] == true) {
+                if (discreteVector[k] == true && lensGrowingTree.getCategoryBuckets(k) != null) {
+                    discreteCollection.add(lensGrowingTree.getCategoryBuckets(k).getCategories()); // already sorted and unique
+                    discreteCollectionIndex.add(k);
+                } else if (discreteVector[k] == true) {
                     TreeSet<Integer> treeSetOfAllDiscreteElementsOfVariableK = new TreeSet<>();
                     for (int i = 0; i < lensGrowingTree.getNumObs(); i++) {
-                        int element = (int) lensGrowingTree.getZ(i, k);
+                        int element = lensGrowingTree.getCategory(i, k);
 //                        if (i < 10) {
 //                            pmUtility.prettyPrint(lensGrowingTree.getRowZ(i));
 //                            System.out.println("element: " + element);
@@ -275,15 +431,17 @@ public class TreeMoment {
              */
             TreeSet<Integer> randomForestIndex = new TreeSet<>();
 
-            if (useRandomForest) { // Randomly choosing a subset of variables to search over with a max of 5 variables to search over
-                int[] varSearchIndex = momentSpec.getVariableIndicesToSearchOver();
-                int P = Math.min(5, varSearchIndex.length);
+            if (splitVariablesPerNode > 0) { // Randomly choosing a subset of variables to search over
+                int[] varSearchIndex = momentSpec.getVariableIndicesToSearchOver().clone();
+                int P = (int) (splitVariablesPerNode >= 1 ? splitVariablesPerNode : Math.ceil(splitVariablesPerNode * varSearchIndex.length));
+                P = Math.max(1, Math.min(P, varSearchIndex.length));
+                Random rng = new Random(~treeSeed); // a different stream from the children's seeds
                 for (int i = 0; i < P; i++) {
-                    int draw = (int) Math.floor(Math.random() * momentSpec.getVariableIndicesToSearchOver().length);
-                    while (randomForestIndex.contains(varSearchIndex[draw])) {
-                        draw = (int) Math.floor(Math.random() * momentSpec.getVariableIndicesToSearchOver().length);
-                    }
-                    randomForestIndex.add(varSearchIndex[draw]);
+                    int draw = i + rng.nextInt(varSearchIndex.length - i);
+                    int swap = varSearchIndex[i];
+                    varSearchIndex[i] = varSearchIndex[draw];
+                    varSearchIndex[draw] = swap;
+                    randomForestIndex.add(varSearchIndex[i]);
                 }
             } else {
                 for (int index : momentSpec.getVariableIndicesToSearchOver()) {
@@ -293,193 +451,48 @@ public class TreeMoment {
 
             boolean first = true;
 
-            for (int indexSplitVariable : momentSpec.getVariableIndicesToSearchOver()) {
+            /**
+             * Score each candidate variable on its own, concurrently when
+             * parallelSplitSearch is on. Ties go to the lower variable
+             * index, so the choice matches the sequential search exactly.
+             */
+            int[] variableIndices = momentSpec.getVariableIndicesToSearchOver();
+            IntStream variableStream = IntStream.range(0, variableIndices.length);
+            if (parallelSplitSearch) {
+                variableStream = variableStream.parallel();
+            }
+            SplitCandidate bestSplit = variableStream.mapToObj(j -> {
+                int indexSplitVariable = variableIndices[j];
                 if (debugOptimization) {
                     echoLn("indexSplitVariable: " + indexSplitVariable + " (" + momentSpec.getVariableName(indexSplitVariable) + "); isDiscrete: " + discreteVector[indexSplitVariable] + "; In Tree: " + randomForestIndex.contains(indexSplitVariable));
                 }
-                if (randomForestIndex.contains(indexSplitVariable)) {
-                    /**
-                     * Search using fmin and grid search if splitting variable
-                     * is continuous
-                     */
-                    if (discreteVector[indexSplitVariable] == false) {
-                        MomentContinuousSplitObj obj = momentSpec.getFminObjective(lensGrowingTree, indexSplitVariable, minProportionEachPartition, minCountEachPartition);
-                        double minZ = lensGrowingTree.getMinimumValue(indexSplitVariable);
-                        double maxZ = lensGrowingTree.getMaximumValue(indexSplitVariable);
-
-                        if (debugOptimization) {
-                            System.out.println("TreeMoment.java:224 -> min " + momentSpec.getVariableName(indexSplitVariable) + ": " + minZ + " max " + momentSpec.getVariableName(optimalSplitVariableIndex) + ": " + maxZ);
-                        }
-                        double optimalZ_k = Double.POSITIVE_INFINITY;
-                        double optimalZ_SSE_k = Double.POSITIVE_INFINITY;
-
-                        if (maxZ - minZ != 0) {
-                            boolean useFmin = true;
-                            if (useFmin) {
-                                optimalZ_k = Fmin.fmin(minZ, maxZ, obj, 1E-14); // This is choosing a split point such that the summed SSEs of each leaf are minimized
-                                optimalZ_SSE_k = obj.f_to_minimize(optimalZ_k); //Now return the summed SSEs of the optimal split point
-                            } else {
-                                optimalZ_k = Double.POSITIVE_INFINITY;
-                                optimalZ_SSE_k = Double.POSITIVE_INFINITY;
-                            }
-
-                            if (debugOptimization) {
-                                echoLn("\tFmin search on " + momentSpec.getVariableName(indexSplitVariable) + " found x = " + optimalZ_k + " SSE: " + optimalZ_SSE_k);
-                                // System.out.println("TreeMoment.java:253 -> min x_1: " + minZ + " max x_1: " + maxZ);
-                            }
-
-                            boolean testGridSearch = true;
-                            double h = 1E-30;
-                            if (testGridSearch) {
-                                double leftZ = minZ;
-                                double rightZ = maxZ;
-
-                                double increment = h + (rightZ - leftZ) / 100.0;
-
-                                if (debugOptimization) {
-                                    echoLn("\tGrid Search " + momentSpec.getVariableName(indexSplitVariable) + " from " + leftZ + " to " + rightZ);
-                                }
-
-                                for (double z = leftZ + increment; z <= rightZ - increment; z += increment) {
-                                    double f = obj.f_to_minimize(z);
-
-                                    if (debugOptimization) {
-                                        echoLn("\tGrid search z_" + indexSplitVariable + " (" + momentSpec.getVariableName(indexSplitVariable) + ") from " + optimalZ_SSE_k + " to " + f + " by moving from " + optimalZ_k + " to " + z + " increment: " + increment);
-                                    }
-                                    if (f < optimalZ_SSE_k) {
-                                        optimalZ_k = z;
-                                        optimalZ_SSE_k = f;
-                                        // System.out.println("SSE left: "+obj.leftMSE+" SSE right: "+obj.rightMSE);
-                                    }
-                                }
-                                if (debugOptimization) {
-                                    echoLn("\tGrid Search " + momentSpec.getVariableName(indexSplitVariable) + " best " + optimalZ_k + " SSE: " + optimalZ_SSE_k);
-                                }
-
-                                /**
-                                 * Try a second grid search within the last
-                                 * interval to really improve precision of our
-                                 * estimates
-                                 */
-                                leftZ = optimalZ_k - increment;
-                                rightZ = optimalZ_k + increment;
-                                increment = h + (rightZ - leftZ) / 100.0;
-
-                                if (debugOptimization) {
-                                    echoLn("\tSecond Finer Grid Search " + momentSpec.getVariableName(indexSplitVariable) + " from " + leftZ + " to " + rightZ);
-                                }
-
-                                for (double z = leftZ + increment; z <= rightZ - increment; z += increment) {
-                                    double f = obj.f_to_minimize(z);
-                                    if (debugOptimization) {
-                                        echoLn("\tGrid search z_" + indexSplitVariable + " (" + momentSpec.getVariableName(indexSplitVariable) + ") from " + optimalZ_SSE_k + " to " + f + " by moving from " + optimalZ_k + " to " + z);
-                                    }
-                                    if (f < optimalZ_SSE_k) {
-                                        optimalZ_k = z;
-                                        optimalZ_SSE_k = f;
-                                        // System.out.println("SSE left: "+obj.leftMSE+" SSE right: "+obj.rightMSE);
-                                    }
-                                }
-                                if (debugOptimization) {
-                                    echoLn("\tGrid Search " + momentSpec.getVariableName(indexSplitVariable) + " best " + optimalZ_k + " SSE: " + optimalZ_SSE_k);
-                                }
-
-                            }
-                        }
-
-                        //If the summed SSE for this variable is smaller than for any other previous variable, or if its the first variable being tested, set it to be the optimal splitting variable
-                        if (optimalZ_SSE_k < optimalZ_SSE || first) {
-                            obj.f_to_minimize(optimalZ_k);
-                            optimalZ = optimalZ_k;
-                            optimalZ_SSE = optimalZ_SSE_k;
-                            optimalSplitVariableIndex = indexSplitVariable;
-                            optimalZ_SSE_Left = obj.getLeftSSE();
-                            optimalZ_SSE_Right = obj.getRightSSE();
-                            // System.out.println("SSE left: "+optimalZ_SSE_Left+" SSE right: "+optimalZ_SSE_Right);
-                            numObsLeft = obj.getEffectiveNumObsLeft();
-                            numObsRight = obj.getEffectiveNumObsRight();
-                            first = false;
-                        }
-                    } else {
-                        int collectionIndex = discreteCollectionIndex.indexOf(indexSplitVariable);
-                        ArrayList<Integer> discreteList = discreteCollection.get(collectionIndex);
-                        ArrayList<IntegerPartition> partitions = DisjointSet.computeAllDisjointSets(discreteList);
-                        // echoLn("Partition size: " + partitions.size() + " discreteList.size(): " + discreteList.size());
-                        /**
-                         * Need to put in a check here that the
-                         * discreteList.size is greater than one element
-                         */
-                        if (discreteList.size() > 1) {
-                            int optimalPartitionIndex = 0;
-                            double bestPartitionSSE = 0;
-                            double optimalZ_SSE_Right_Partition = 0;
-                            double optimalZ_SSE_Left_Partition = 0;
-                            int numObsLeft_Partition = 0;
-                            int numObsRight_Partition = 0;
-
-                            // System.out.println("Number of partitions: "+partitions.size());
-                            // extend the random forest here to sample to possible partitions? this will help with controlling runtime when the number of partitions is huge
-                            // alternatively, for ordered discrete bins (like income in the gasoline case) we could classify that as a continuous variable; especially
-                            // if the endpoints are classified as something else (like missing data or whatever)
-                            for (int i = 0; i < partitions.size(); i++) {
-                                MomentPartitionObj obj = momentSpec.getMomentPartitionObj(lensGrowingTree, indexSplitVariable, partitions.get(i));
-
-                                double partitionSSE = 0;
-                                if (obj.getEffectiveNumObsLeft() < minCountEachPartition || obj.getEffectiveNumObsRight() < minCountEachPartition) {
-                                    // echoLn("IS IT IN? : obj.getNumObsLeft(): " + obj.getEffectiveNumObsLeft() + " minCountEachPartition " + minCountEachPartition + " right obs: " + obj.getEffectiveNumObsRight() + " indexSplitVariable " + indexSplitVariable);
-                                    if (debugOptimization) {
-                                        echoLn("\t\tMin K violated: rejecting partition for left obs: " + obj.getEffectiveNumObsLeft() + " right obs: " + obj.getEffectiveNumObsRight());
-                                    }
-                                    partitionSSE = Double.POSITIVE_INFINITY;
-                                } else if (((obj.getEffectiveNumObsLeft() + 0.0) / (lensGrowingTree.getNumObs() + 0.0)) < minProportionEachPartition || ((obj.getEffectiveNumObsRight() + 0.0) / (lensGrowingTree.getNumObs() + 0.0)) < minProportionEachPartition) {
-                                    if (debugOptimization) {
-                                        echoLn("\t\tRejecting partition for proportion; left: " + ((obj.getEffectiveNumObsLeft() + 0.0) / (lensGrowingTree.getNumObs() + 0.0)) + " right: " + ((obj.getEffectiveNumObsRight() + 0.0) / (lensGrowingTree.getNumObs() + 0.0)));
-                                        // System.exit(0);
-                                    }
-                                    partitionSSE = Double.POSITIVE_INFINITY;
-                                } else {
-                                    partitionSSE = obj.getSSE();
-                                }
-
-                                if (debugOptimization) {
-                                    echoLn("\t " + momentSpec.getVariableName(indexSplitVariable) + " Partition: " + i + " " + partitions.get(i) + " SSE: " + partitionSSE);
-                                }
-
-                                //For every possible partition, we check which has the lowest SSE
-                                if (partitionSSE < bestPartitionSSE || i == 0) {
-                                    bestPartitionSSE = partitionSSE;
-                                    optimalPartitionIndex = i;
-                                    optimalZ_SSE_Right_Partition = obj.getRightSSE();
-                                    optimalZ_SSE_Left_Partition = obj.getLeftSSE();
-                                    numObsLeft_Partition = obj.getEffectiveNumObsLeft();
-                                    numObsRight_Partition = obj.getEffectiveNumObsRight();
-                                    if (debugOptimization) {
-                                        echoLn("\tPartition: " + i + " (" + momentSpec.getVariableName(i) + ") " + partitions.get(i) + " SSE: " + partitionSSE + " set as within-variable current best.");
-                                    }
-                                }
-                            }
-
-                            if (bestPartitionSSE < optimalZ_SSE || first) {
-                                optimalZ = optimalPartitionIndex; // in this case, this will be the index of the best partitioning
-                                // But how do we know which partition the index corresponds to?
-                                optimalZ_SSE = bestPartitionSSE;
-                                optimalSplitVariableIndex = indexSplitVariable;
-                                optimalDiscreteCollectionIndex = collectionIndex;
-                                optimalZ_SSE_Left = optimalZ_SSE_Left_Partition;
-                                optimalZ_SSE_Right = optimalZ_SSE_Right_Partition;
-                                numObsLeft = numObsLeft_Partition;
-                                numObsRight = numObsRight_Partition;
-                                first = false;
-                                if (debugOptimization) {
-                                    echoLn("Variable " + momentSpec.getVariableName(optimalSplitVariableIndex) + " with partition " + partitions.get((int) optimalZ) + " giving SSE of " + optimalZ_SSE + " set as overall current best.");
-                                }
-                            }
-                        }
-                    }
+                if (!randomForestIndex.contains(indexSplitVariable)) {
+                    return null;
+                }
+                if (discreteVector[indexSplitVariable] == false) {
+                    return searchContinuousVariable(indexSplitVariable);
+                }
+                int collectionIndex = discreteCollectionIndex.indexOf(indexSplitVariable);
+                return searchDiscreteVariable(indexSplitVariable, discreteCollection.get(collectionIndex));
+            }).filter(Objects::nonNull).reduce(SplitCandidate::better).orElse(null);
+
+            //If the summed SSE for this variable is smaller than for any other previous variable, or if its the first variable being tested, set it to be the optimal splitting variable
+            if (bestSplit != null) {
+                bestSplit.evaluate();
+                optimalZ = bestSplit.getSplitPoint();
+                optimalZ_SSE = bestSplit.getSSE();
+                optimalSplitVariableIndex = bestSplit.getIndexSplitVariable();
+                optimalZ_SSE_Left = bestSplit.getLeftSSE();
+                optimalZ_SSE_Right = bestSplit.getRightSSE();
+                numObsLeft = bestSplit.getNumObsLeft();
+                numObsRight = bestSplit.getNumObsRight();
+                first = false;
+                if (debugOptimization) {
+                    echoLn("Variable " + momentSpec.getVariableName(optimalSplitVariableIndex) + " giving SSE of " + optimalZ_SSE + " set as overall best.");
                 }
             }
 
-            setCurrentNodeObjectiveFunction(currentNodeMoment.getGoodnessOfFit());
+            setCurrentNodeObjectiveFunction(nodeGoodnessOfFit);
 
             // System.out.println("Baseline SSE is computed as: " + baseline);
             if (verbose) {
@@ -496,39 +509,43 @@ public class TreeMoment {
                 }
             } else {
                 setTerminal(false);
-                if (discreteVector[optimalSplitVariableIndex]) {
-                    ArrayList<Integer> discreteList = discreteCollection.get(optimalDiscreteCollectionIndex);
-                    ArrayList<IntegerPartition> partitions = DisjointSet.computeAllDisjointSets(discreteList); //Recompute all the disjoint sets of the optimal splitting variable, which is discrete
-
-                    MomentPartitionObj obj = momentSpec.getMomentPartitionObj(lensGrowingTree, optimalSplitVariableIndex, partitions.get((int) optimalZ)); //This is where we use optimalX
+                /**
+                 * Children take the lenses and, when the moment kept them,
+                 * the fits computed while scoring the winning split
+                 */
+                if (bestSplit.isDiscrete()) {
                     if (verbose) {
-                        echoLn(depth + ". Calculated optimal split along discrete variable, partitioning " + momentSpec.getVariableName(optimalSplitVariableIndex) + " -> " + partitions.get((int) optimalZ) + ", generating SSE of " + obj.getSSE());
+                        echoLn(depth + ". Calculated optimal split along discrete variable, partitioning " + momentSpec.getVariableName(optimalSplitVariableIndex) + " -> " + bestSplit.getPartition() + ", generating SSE of " + optimalZ_SSE);
                     }
-                    setRule(new SplitRule(true, optimalSplitVariableIndex, optimalZ, partitions.get((int) optimalZ), momentSpec));
-                    Random rng = new Random(treeSeed);
-                    childLeft = new TreeMoment(this, momentSpec, obj.getDataSplit().getLeft(), discreteVector, verbose, minProportionEachPartition, minCountEachPartition, improvementThreshold,
-                            true, maxDepth, null, testParameterHomogeneity, rng.nextLong());
-                    childRight = new TreeMoment(this, momentSpec, obj.getDataSplit().getRight(), discreteVector, verbose, minProportionEachPartition, minCountEachPartition, improvementThreshold,
-                            false, maxDepth, null, testParameterHomogeneity, rng.nextLong());
+                    setRule(new SplitRule(true, optimalSplitVariableIndex, optimalZ, bestSplit.getPartition(), momentSpec));
                 } else {
-                    MomentContinuousSplitObj obj = momentSpec.getFminObjective(lensGrowingTree, optimalSplitVariableIndex, minProportionEachPartition, minCountEachPartition);
                     if (verbose) {
-                        echoLn(depth + ". Calculated optimal split along " + momentSpec.getVariableName(optimalSplitVariableIndex) + " at " + optimalZ + ", generating SSE of " + obj.f_to_minimize(optimalZ));
+                        echoLn(depth + ". Calculated optimal split along " + momentSpec.getVariableName(optimalSplitVariableIndex) + " at " + optimalZ + ", generating SSE of " + optimalZ_SSE);
                     }
                     setRule(new SplitRule(false, optimalSplitVariableIndex, optimalZ, null, momentSpec));
-
-                    DataLens left = SplitContainer.getContinuousDataSplit(lensGrowingTree, optimalZ, optimalSplitVariableIndex).getLeft();
-                    DataLens right = SplitContainer.getContinuousDataSplit(lensGrowingTree, optimalZ, optimalSplitVariableIndex).getRight();
-                    // System.out.println("Max left: "+pmUtility.max(childLeftX, 1));
-                    // System.out.println("Min right: "+pmUtility.min(childRightX, 1));
-                    Random rng = new Random(treeSeed);
-                    childLeft = new TreeMoment(this, momentSpec, left, discreteVector, verbose, minProportionEachPartition, minCountEachPartition, improvementThreshold,
-                            true, maxDepth, null, testParameterHomogeneity, rng.nextLong());
-                    childRight = new TreeMoment(this, momentSpec, right, discreteVector, verbose, minProportionEachPartition, minCountEachPartition, improvementThreshold,
-                            false, maxDepth, null, testParameterHomogeneity, rng.nextLong());
                 }
-                childLeft.determineSplit(); //Prioritizes splits to the left
-                childRight.determineSplit(); //Once we find a terminal node, split to the right
+                SplitContainer split = bestSplit.getDataSplit(lensGrowingTree);
+                split.inheritSortedIndex(lensGrowingTree);
+                split.inheritCategoryBuckets(lensGrowingTree);
+                Random rng = new Random(treeSeed);
+                childLeft = new TreeMoment(this, momentSpec, split.getLeft(), discreteVector, verbose, minProportionEachPartition, minCountEachPartition, improvementThreshold,
+                        true, maxDepth, null, testParameterHomogeneity, rng.nextLong(), bestSplit.getLeftFit());
+                childRight = new TreeMoment(this, momentSpec, split.getRight(), discreteVector, verbose, minProportionEachPartition, minCountEachPartition, improvementThreshold,
+                        false, maxDepth, null, testParameterHomogeneity, rng.nextLong(), bestSplit.getRightFit());
+                bestSplit = null; // the children hold the fits only until they have read them
+                lensGrowingTree.clearSortedIndex(); // children have their own copies now
+                lensGrowingTree.clearCategoryBuckets();
+                if (forkSubtrees(lensGrowingTree.getNumObs())) {
+                    /**
+                     * Siblings share nothing but read-only data and carry
+                     * their own seeds, so growing them concurrently gives
+                     * the same tree
+                     */
+                    ForkJoinTask.invokeAll(ForkJoinTask.adapt(childLeft::determineSplit), ForkJoinTask.adapt(childRight::determineSplit));
+                } else {
+                    childLeft.determineSplit(); //Prioritizes splits to the left
+                    childRight.determineSplit(); //Once we find a terminal node, split to the right
+                }
             }
         } else {
             setTerminal(true);
@@ -548,7 +565,323 @@ public class TreeMoment {
                 // System.out.println(depth + ". Terminal RDD value: " + getRDDEstimate());
             }
         }
+        lensGrowingTree.clearSortedIndex();
+        lensGrowingTree.clearCategoryBuckets();
+
+    }
+
+    /**
+     * Search using fmin and grid search (or one of the sufficient-statistic
+     * searches) along a continuous splitting variable
+     */
+    private SplitCandidate searchContinuousVariable(int indexSplitVariable) {
+        MomentContinuousSplitObj obj = momentSpec.getFminObjective(lensGrowingTree, indexSplitVariable, minProportionEachPartition, minCountEachPartition);
+        obj.setStartingBeta(getNodeEstimatedBeta()); // children start from this node's estimate
+        double minZ = lensGrowingTree.getMinimumValue(indexSplitVariable);
+        double maxZ = lensGrowingTree.getMaximumValue(indexSplitVariable);
+
+        if (debugOptimization) {
+            System.out.println("TreeMoment.java:224 -> min " + momentSpec.getVariableName(indexSplitVariable) + ": " + minZ + " max " + momentSpec.getVariableName(indexSplitVariable) + ": " + maxZ);
+        }
+        double optimalZ_k = Double.POSITIVE_INFINITY;
+        double optimalZ_SSE_k = Double.POSITIVE_INFINITY;
+        boolean useSweep = false;
+        boolean useBins = false;
+        boolean useExact = false;
+        boolean ordinal = momentSpec.getVariableType(indexSplitVariable) == VariableType.ORDINAL;
+
+        if (maxZ - minZ != 0) {
+            /**
+             * When the forest carries quantile bins for this
+             * variable, only the bin boundaries are searched
+             */
+            useBins = !ordinal && lensGrowingTree.getBinnedZ() != null && lensGrowingTree.getBinnedZ().isBinned(indexSplitVariable);
+            /**
+             * Least-squares moments can score every distinct
+             * threshold exactly in one pass over the sorted
+             * node, which replaces Fmin and the grid search
+             */
+            useSweep = !useBins && obj instanceof LeastSquaresSweepObjective;
+            boolean useFmin = !useSweep && !useBins;
+            /**
+             * Fmin and the grid passes keep landing between the same pair
+             * of observed values; refit each distinct partition only once
+             */
+            PartitionCachedObjective cachedObj = null;
+            if (useFmin) {
+                cachedObj = new PartitionCachedObjective(obj, lensGrowingTree, indexSplitVariable);
+            }
+            if (useBins) {
+                optimalZ_k = obj.binnedSearch(lensGrowingTree, minCountEachPartition);
+                optimalZ_SSE_k = obj.getLeftSSE() + obj.getRightSSE();
+                if (debugOptimization) {
+                    echoLn("\tBinned search on " + momentSpec.getVariableName(indexSplitVariable) + " found x = " + optimalZ_k + " SSE: " + optimalZ_SSE_k);
+                }
+            } else if (useSweep) {
+                optimalZ_k = obj.sweep(lensGrowingTree, minCountEachPartition);
+                optimalZ_SSE_k = obj.getLeftSSE() + obj.getRightSSE();
+                if (debugOptimization) {
+                    echoLn("\tSweep on " + momentSpec.getVariableName(indexSplitVariable) + " found x = " + optimalZ_k + " SSE: " + optimalZ_SSE_k);
+                }
+            } else if (useFmin && (ordinal || lensGrowingTree.getNumObs() <= exactSearchMaxObs)) {
+                /**
+                 * Small node or ordinal variable: every feasible partition
+                 * is cheaper to enumerate than to search for
+                 */
+                useExact = true;
+                optimalZ_k = cachedObj.enumerateMidpoints(minCountEachPartition);
+                optimalZ_SSE_k = cachedObj.getOptimalValue();
+                if (debugOptimization) {
+                    echoLn("\tExact search on " + momentSpec.getVariableName(indexSplitVariable) + " found x = " + optimalZ_k + " SSE: " + optimalZ_SSE_k + " (" + cachedObj.getNumEvaluations() + " fits)");
+                }
+            } else if (useFmin) {
+                optimalZ_k = Fmin.fmin(minZ, maxZ, cachedObj, 1E-14); // This is choosing a split point such that the summed SSEs of each leaf are minimized
+                optimalZ_SSE_k = cachedObj.f_to_minimize(optimalZ_k); //Now return the summed SSEs of the optimal split point
+            } else {
+                optimalZ_k = Double.POSITIVE_INFINITY;
+                optimalZ_SSE_k = Double.POSITIVE_INFINITY;
+            }
+
+            if (debugOptimization) {
+                echoLn("\tFmin search on " + momentSpec.getVariableName(indexSplitVariable) + " found x = " + optimalZ_k + " SSE: " + optimalZ_SSE_k);
+                // System.out.println("TreeMoment.java:253 -> min x_1: " + minZ + " max x_1: " + maxZ);
+            }
+
+            boolean testGridSearch = useFmin && !useExact;
+            double h = 1E-30;
+            if (testGridSearch) {
+                double leftZ = minZ;
+                double rightZ = maxZ;
+
+                double increment = h + (rightZ - leftZ) / 100.0;
+
+                if (debugOptimization) {
+                    echoLn("\tGrid Search " + momentSpec.getVariableName(indexSplitVariable) + " from " + leftZ + " to " + rightZ);
+                }
+
+                for (double z = leftZ + increment; z <= rightZ - increment; z += increment) {
+                    double f = cachedObj.f_to_minimize(z);
+
+                    if (debugOptimization) {
+                        echoLn("\tGrid search z_" + indexSplitVariable + " (" + momentSpec.getVariableName(indexSplitVariable) + ") from " + optimalZ_SSE_k + " to " + f + " by moving from " + optimalZ_k + " to " + z + " increment: " + increment);
+                    }
+                    if (f < optimalZ_SSE_k) {
+                        optimalZ_k = z;
+                        optimalZ_SSE_k = f;
+                        // System.out.println("SSE left: "+obj.leftMSE+" SSE right: "+obj.rightMSE);
+                    }
+                }
+                if (debugOptimization) {
+                    echoLn("\tGrid Search " + momentSpec.getVariableName(indexSplitVariable) + " best " + optimalZ_k + " SSE: " + optimalZ_SSE_k);
+                }
+
+                /**
+                 * Try a second grid search within the last
+                 * interval to really improve precision of our
+                 * estimates
+                 */
+                leftZ = optimalZ_k - increment;
+                rightZ = optimalZ_k + increment;
+                increment = h + (rightZ - leftZ) / 100.0;
+
+                if (debugOptimization) {
+                    echoLn("\tSecond Finer Grid Search " + momentSpec.getVariableName(indexSplitVariable) + " from " + leftZ + " to " + rightZ);
+                }
+
+                for (double z = leftZ + increment; z <= rightZ - increment; z += increment) {
+                    double f = cachedObj.f_to_minimize(z);
+                    if (debugOptimization) {
+                        echoLn("\tGrid search z_" + indexSplitVariable + " (" + momentSpec.getVariableName(indexSplitVariable) + ") from " + optimalZ_SSE_k + " to " + f + " by moving from " + optimalZ_k + " to " + z);
+                    }
+                    if (f < optimalZ_SSE_k) {
+                        optimalZ_k = z;
+                        optimalZ_SSE_k = f;
+                        // System.out.println("SSE left: "+obj.leftMSE+" SSE right: "+obj.rightMSE);
+                    }
+                }
+                if (debugOptimization) {
+                    echoLn("\tGrid Search " + momentSpec.getVariableName(indexSplitVariable) + " best " + optimalZ_k + " SSE: " + optimalZ_SSE_k);
+                }
+
+            }
+        }
+
+        /**
+         * The sufficient-statistic searches leave the objective at its
+         * optimum; otherwise the winning variable is refit at its split point
+         * once the variables have been compared
+         */
+        boolean atOptimum = obj instanceof LeastSquaresSweepObjective && (useSweep || useBins);
+        return new SplitCandidate(indexSplitVariable, optimalZ_k, optimalZ_SSE_k, obj, atOptimum);
+    }
+
+    /**
+     * Search over all the partitions of the remaining groups of a discrete
+     * variable
+     *
+     * @return Best partition, or null if there is only one group left (or
+     * the ordered search has no node fit to order by)
+     */
+    private SplitCandidate searchDiscreteVariable(int indexSplitVariable, ArrayList<Integer> discreteList) {
+        boolean ordered = orderedSplitMinCategories > 0 && discreteList.size() >= orderedSplitMinCategories;
+        if (ordered && betaEstimateNode == null) {
+            /**
+             * The ordering needs the node's fit. Without one, use the
+             * partition budget if there is one; otherwise skip the variable
+             * rather than enumerate the partitions the ordering avoids
+             */
+            if (maxPartitionsPerVariable <= 0) {
+                return null;
+            }
+            ordered = false;
+        }
+        boolean sampled = !ordered && maxPartitionsPerVariable > 0 && DisjointSet.countDisjointSets(discreteList.size()) > maxPartitionsPerVariable;
+        /**
+         * Every bipartition is scored from its bitmask and only the winner is
+         * built as an IntegerPartition; a sample or the splits of an ordering
+         * are listed
+         */
+        ArrayList<IntegerPartition> partitions = null;
+        long[] masks = null;
+        if (ordered) {
+            partitions = getOrderedPartitions(indexSplitVariable, discreteList);
+        } else if (sampled) {
+            /**
+             * Over budget: score a random sample of bipartitions, drawn
+             * from the tree's seed so the tree is reproducible
+             */
+            partitions = DisjointSet.sampleDisjointSets(discreteList, maxPartitionsPerVariable, new Random(treeSeed + indexSplitVariable));
+        } else {
+            masks = DisjointSet.getBipartitionMasks(discreteList.size());
+        }
+        final ArrayList<IntegerPartition> listedPartitions = partitions;
+        final long[] partitionMasks = masks;
+        int numPartitions = partitions != null ? partitions.size() : masks.length;
+        IntFunction<IntegerPartition> partitionAt = i -> listedPartitions != null ? listedPartitions.get(i) : DisjointSet.getPartition(discreteList, partitionMasks[i]);
+        // echoLn("Partition size: " + partitions.size() + " discreteList.size(): " + discreteList.size());
+        /**
+         * Need to put in a check here that the
+         * discreteList.size is greater than one element
+         */
+        SplitCandidate best = null;
+        if (discreteList.size() > 1) {
+
+            // System.out.println("Number of partitions: "+partitions.size());
+            // extend the random forest here to sample to possible partitions? this will help with controlling runtime when the number of partitions is huge
+            // alternatively, for ordered discrete bins (like income in the gasoline case) we could classify that as a continuous variable; especially
+            // if the endpoints are classified as something else (like missing data or whatever)
+            MomentContinuousSplitObj sweepObj = momentSpec.getFminObjective(lensGrowingTree, indexSplitVariable, minProportionEachPartition, minCountEachPartition);
+            if (sweepObj instanceof LeastSquaresSweepObjective) {
+                /**
+                 * Least-squares moments score the partitions from
+                 * per-category sums (all of them in one Gray-code pass); only
+                 * the winner's data is split
+                 */
+                PartitionSweep sweep = new PartitionSweep((LeastSquaresSweepObjective) sweepObj, lensGrowingTree, indexSplitVariable, discreteList, partitions, minCountEachPartition, minProportionEachPartition);
+                int bestIndex = 0;
+                for (int i = 1; i < numPartitions; i++) {
+                    if (sweep.getSSE(i) < sweep.getSSE(bestIndex)) {
+                        bestIndex = i;
+                    }
+                }
+                if (debugOptimization) {
+                    for (int i = 0; i < numPartitions; i++) {
+                        echoLn("\t " + momentSpec.getVariableName(indexSplitVariable) + " Partition: " + i + " " + sweep.getPartition(i) + " SSE: " + sweep.getSSE(i));
+                    }
+                }
+                best = new SplitCandidate(indexSplitVariable, bestIndex, sweep);
+                if (debugOptimization) {
+                    echoLn("\tPartition: " + bestIndex + " (" + momentSpec.getVariableName(indexSplitVariable) + ") " + best.getPartition() + " SSE: " + best.getSSE() + " set as within-variable best.");
+                }
+                return best;
+            }
+            /**
+             * Partitions are scored independently (concurrently when
+             * parallelSplitSearch is on); ties go to the lowest index, as
+             * in the sequential loop
+             */
+            IntStream partitionStream = IntStream.range(0, numPartitions);
+            if (parallelSplitSearch) {
+                partitionStream = partitionStream.parallel();
+            }
+            best = partitionStream.mapToObj(i -> {
+                MomentPartitionObj obj = momentSpec.getMomentPartitionObj(lensGrowingTree, indexSplitVariable, partitionAt.apply(i));
+                obj.setStartingBeta(getNodeEstimatedBeta());
+
+                double partitionSSE = 0;
+                if (obj.getEffectiveNumObsLeft() < minCountEachPartition || obj.getEffectiveNumObsRight() < minCountEachPartition) {
+                    // echoLn("IS IT IN? : obj.getNumObsLeft(): " + obj.getEffectiveNumObsLeft() + " minCountEachPartition " + minCountEachPartition + " right obs: " + obj.getEffectiveNumObsRight() + " indexSplitVariable " + indexSplitVariable);
+                    if (debugOptimization) {
+                        echoLn("\t\tMin K violated: rejecting partition for left obs: " + obj.getEffectiveNumObsLeft() + " right obs: " + obj.getEffectiveNumObsRight());
+                    }
+                    partitionSSE = Double.POSITIVE_INFINITY;
+                } else if (((obj.getEffectiveNumObsLeft() + 0.0) / (lensGrowingTree.getWeightedNumObs() + 0.0)) < minProportionEachPartition || ((obj.getEffectiveNumObsRight() + 0.0) / (lensGrowingTree.getWeightedNumObs() + 0.0)) < minProportionEachPartition) {
+                    if (debugOptimization) {
+                        echoLn("\t\tRejecting partition for proportion; left: " + ((obj.getEffectiveNumObsLeft() + 0.0) / (lensGrowingTree.getWeightedNumObs() + 0.0)) + " right: " + ((obj.getEffectiveNumObsRight() + 0.0) / (lensGrowingTree.getWeightedNumObs() + 0.0)));
+                        // System.exit(0);
+                    }
+                    partitionSSE = Double.POSITIVE_INFINITY;
+                } else {
+                    partitionSSE = obj.getSSE();
+                }
+
+                if (debugOptimization) {
+                    echoLn("\t " + momentSpec.getVariableName(indexSplitVariable) + " Partition: " + i + " " + obj.partition + " SSE: " + partitionSSE);
+                }
+                return new SplitCandidate(indexSplitVariable, i, partitionSSE, obj);
+            }).reduce(SplitCandidate::better).get();
+
+            //For every possible partition, we check which has the lowest SSE
+            if (debugOptimization) {
+                echoLn("\tPartition: " + (int) best.getSplitPoint() + " (" + momentSpec.getVariableName(indexSplitVariable) + ") " + best.getPartition() + " SSE: " + best.getSSE() + " set as within-variable best.");
+            }
+        }
+        return best;
+    }
 
+    /**
+     * Orders the categories by their mean residual from the node's fit and
+     * returns the m-1 splits between neighbours in that ordering. For a
+     * least-squares fit this ordering contains the best bipartition of an
+     * intercept shift (Fisher, 1958); for other moments it is a heuristic
+     * that keeps the search linear in the number of categories.
+     */
+    private ArrayList<IntegerPartition> getOrderedPartitions(int indexSplitVariable, ArrayList<Integer> discreteList) {
+        int m = discreteList.size();
+        HashMap<Integer, Integer> categoryIndex = new HashMap<>();
+        for (int c = 0; c < m; c++) {
+            categoryIndex.put(discreteList.get(c), c);
+        }
+        double[] sumResidual = new double[m];
+        int[] count = new int[m];
+        Random rng = new Random(treeSeed);
+        for (int i = 0; i < lensGrowingTree.getNumObs(); i++) {
+            int c = categoryIndex.get(lensGrowingTree.getCategory(i, indexSplitVariable));
+            Double fitted = momentSpec.getPredictedY(lensGrowingTree.getRowX(i), betaEstimateNode, rng);
+            int w = lensGrowingTree.getWeight(i);
+            sumResidual[c] += w * (lensGrowingTree.getY(i) - (fitted == null ? 0 : fitted));
+            count[c] += w;
+        }
+        Integer[] order = new Integer[m];
+        for (int c = 0; c < m; c++) {
+            order[c] = c;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(sumResidual[a] / Math.max(1, count[a]), sumResidual[b] / Math.max(1, count[b])));
+
+        ArrayList<IntegerPartition> partitions = new ArrayList<>();
+        for (int r = 1; r < m; r++) {
+            ArrayList<Integer> left = new ArrayList<>();
+            ArrayList<Integer> right = new ArrayList<>();
+            for (int j = 0; j < m; j++) {
+                if (j < r) {
+                    left.add(discreteList.get(order[j]));
+                } else {
+                    right.add(discreteList.get(order[j]));
+                }
+            }
+            partitions.add(new IntegerPartition(left, right));
+        }
+        return partitions;
     }
 
 //    public String getParentRule(TreeSet<Integer> indexPreviousSplits) {
@@ -647,13 +980,13 @@ public class TreeMoment {
     }
 
     public void printTree() {
-        // echoLn(getParentRuleDescriptive(null) + " [" + lensHonest.getNumObs() + "] " + momentSpec.formatTreeLeafOutput(betaEstimateNode, varianceMatrix));
+        // echoLn(getParentRuleDescriptive(null) + " [" + lensHonest.getWeightedNumObs() + "] " + momentSpec.formatTreeLeafOutput(betaEstimateNode, varianceMatrix));
         if (!terminal) {
             childLeft.printTree();
             childRight.printTree();
         } else {
             // System.out.println(getParentRuleDescriptive(null) + " " + pmUtility.stringPrettyPrintVector(betaEstimateNode) + " (" + pmUtility.stringPrettyPrintVector(varianceMatrix) + ")");
-            echoLn(getParentRuleDescriptive(null) + " [" + lensHonest.getNumObs() + "] " + momentSpec.formatTreeLeafOutput(betaEstimateNode, varianceMatrix));
+            echoLn(getParentRuleDescriptive(null) + " [" + lensHonest.getWeightedNumObs() + "] " + momentSpec.formatTreeLeafOutput(betaEstimateNode, varianceMatrix));
         }
     }
 
@@ -670,7 +1003,7 @@ public class TreeMoment {
             pass = pass + childRight.treeString(pass);
         } else {
             // System.out.println(getParentRuleDescriptive(null) + " " + pmUtility.stringPrettyPrintVector(betaEstimateNode) + " (" + pmUtility.stringPrettyPrintVector(varianceMatrix) + ")");
-            return getParentRuleDescriptive(null) + " [" + lensHonest.getNumObs() + "] " + momentSpec.formatTreeLeafOutput(betaEstimateNode, varianceMatrix) + "\n";
+            return getParentRuleDescriptive(null) + " [" + lensHonest.getWeightedNumObs() + "] " + momentSpec.formatTreeLeafOutput(betaEstimateNode, varianceMatrix) + "\n";
         }
         return pass;
     }
@@ -706,8 +1039,8 @@ public class TreeMoment {
                     echoLn("honestY null");
                 }
             } else {
-                ContainerMoment c = momentSpec.computeOptimalBeta(lensHonest, allParametersHomogeneous);
-                if (momentSpec.didEstimatorFail()) {
+                ContainerMoment c = momentSpec.computeOptimalBeta(lensHonest, allParametersHomogeneous, getNodeEstimatedBeta()); // warm start from the growing-sample estimate
+                if (c.didEstimatorFail()) {
                     // System.out.println("TreeMoment setting itself to invalid in honest tree");
                     validTree = false;
                 }
@@ -738,8 +1071,12 @@ public class TreeMoment {
                 }
             }
         } else {
-            childLeft.estimateHonestTree(); //This will climb us down the tree to the terminal nodes
-            childRight.estimateHonestTree();
+            if (lensHonest != null && forkSubtrees(lensHonest.getNumObs())) {
+                ForkJoinTask.invokeAll(ForkJoinTask.adapt(childLeft::estimateHonestTree), ForkJoinTask.adapt(childRight::estimateHonestTree));
+            } else {
+                childLeft.estimateHonestTree(); //This will climb us down the tree to the terminal nodes
+                childRight.estimateHonestTree();
+            }
             /**
              * This is where to impose the pruning if the two child nodes have
              * Infinite or null estimates of the treatment effect.
@@ -766,8 +1103,8 @@ public class TreeMoment {
                         setNodeEstimatedVariance(null);
                         echoLn("null pruned");
                     } else {
-                        ContainerMoment c = momentSpec.computeOptimalBeta(lensHonest, allParametersHomogeneous);
-                        if (momentSpec.didEstimatorFail()) {
+                        ContainerMoment c = momentSpec.computeOptimalBeta(lensHonest, allParametersHomogeneous, getNodeEstimatedBeta());
+                        if (c.didEstimatorFail()) {
                             // System.out.println("TreeMoment setting itself to invalid in honest tree pruning");
                             validTree = false;
                         }
@@ -794,9 +1131,9 @@ public class TreeMoment {
         int totalObs = 0;
         for (int leafLensList = 0; leafLensList < v.size(); leafLensList++) {
             DataLens leafLens = v.get(leafLensList);
-            totalObs += leafLens.getNumObs();
+            totalObs += leafLens.getWeightedNumObs();
             ContainerMoment cm = momentSpec.computeOptimalBeta(leafLens, allParametersHomogeneous);
-            if (momentSpec.didEstimatorFail()) {
+            if (cm.didEstimatorFail()) {
                 System.out.println("TreeMoment getTreeMomentObjectiveFunctionAtComputedParameters setting itself to invalid; should NEVER see this");
                 validTree = false;
             }
@@ -804,7 +1141,7 @@ public class TreeMoment {
             Jama.Matrix leafOmega = new Jama.Matrix(momentSpec.getNumMoments(), momentSpec.getNumMoments());
             for (int i = 0; i < leafLens.getNumObs(); i++) {
                 Jama.Matrix gi = cm.getGi(cm.getBeta(), i);
-                leafOmega.plusEquals(gi.times(gi.transpose()));
+                leafOmega.plusEquals(gi.times(gi.transpose()).times(leafLens.getWeight(i)));
             }
             for (int j = 0; j < momentSpec.getNumMoments(); j++) {
                 G.set(j + leafLensList * momentSpec.getNumMoments(), 0, leafG.get(j, 0));
@@ -1144,7 +1481,7 @@ public class TreeMoment {
     }
 
     public void clearHonestyData() {
-        numHonestXObservations = lensHonest.getNumObs();
+        numHonestXObservations = lensHonest.getWeightedNumObs();
         if (!terminal) {
             childLeft.clearHonestyData();
             childRight.clearHonestyData();
@@ -1236,7 +1573,8 @@ public class TreeMoment {
     }
 
     /**
-     * @return the currentNodeMoment
+     * @return the currentNodeMoment (null once determineSplit has taken the
+     * node's estimate and fit from it)
      */
     public ContainerMoment getCurrentNodeMoment() {
         return currentNodeMoment;
@@ -34,6 +34,15 @@ public class TreeOptions {
     private double minMSEImprovement = 0.01;
     private int maxDepth = 100;
     private boolean testParameterHomogeneity = false;
+    private boolean presortSplitVariables = false;
+    private int maxBins = 0;
+    private boolean parallelSplitSearch = false;
+    private int parallelSubtreeMinObs = 0;
+    private int exactSearchMaxObs = 0;
+    private int orderedSplitMinCategories = 0;
+    private int maxPartitionsPerVariable = 0;
+    private double splitVariablesPerNode = 0;
+    private boolean weightedBootstrap = false;
 
     public TreeOptions() {
     }
@@ -111,4 +120,147 @@ public class TreeOptions {
         this.maxDepth = maxDepth;
     }
 
+    /**
+     * @return whether each tree presorts its continuous split variables once
+     * at the root and passes the order down to the children
+     */
+    public boolean isPresortSplitVariables() {
+        return presortSplitVariables;
+    }
+
+    /**
+     * @param presortSplitVariables the presortSplitVariables to set
+     */
+    public void setPresortSplitVariables(boolean presortSplitVariables) {
+        this.presortSplitVariables = presortSplitVariables;
+    }
+
+    /**
+     * @return the maximum number of quantile bins per continuous split
+     * variable; zero (the default) searches thresholds on the raw values
+     */
+    public int getMaxBins() {
+        return maxBins;
+    }
+
+    /**
+     * @param maxBins the maxBins to set
+     */
+    public void setMaxBins(int maxBins) {
+        this.maxBins = maxBins;
+    }
+
+    /**
+     * @return whether each node scores its candidate split variables, and the
+     * partitions of discrete variables, concurrently
+     */
+    public boolean isParallelSplitSearch() {
+        return parallelSplitSearch;
+    }
+
+    /**
+     * @param parallelSplitSearch the parallelSplitSearch to set
+     */
+    public void setParallelSplitSearch(boolean parallelSplitSearch) {
+        this.parallelSplitSearch = parallelSplitSearch;
+    }
+
+    /**
+     * @return the smallest node whose two subtrees are grown and honestly
+     * estimated as fork/join tasks; zero (the default) keeps each tree
+     * sequential
+     */
+    public int getParallelSubtreeMinObs() {
+        return parallelSubtreeMinObs;
+    }
+
+    /**
+     * @param parallelSubtreeMinObs the parallelSubtreeMinObs to set
+     */
+    public void setParallelSubtreeMinObs(int parallelSubtreeMinObs) {
+        this.parallelSubtreeMinObs = parallelSubtreeMinObs;
+    }
+
+    /**
+     * @return the largest node on which continuous split variables are
+     * searched by enumerating the midpoints between distinct observed values
+     * instead of Fmin and the grid search; zero (the default) never does
+     */
+    public int getExactSearchMaxObs() {
+        return exactSearchMaxObs;
+    }
+
+    /**
+     * @param exactSearchMaxObs the exactSearchMaxObs to set
+     */
+    public void setExactSearchMaxObs(int exactSearchMaxObs) {
+        this.exactSearchMaxObs = exactSearchMaxObs;
+    }
+
+    /**
+     * @return the number of categories at which a discrete variable is split
+     * only between neighbours in an ordering of its categories (m-1
+     * candidates) instead of over all 2^(m-1) bipartitions; zero (the
+     * default) always enumerates every bipartition
+     */
+    public int getOrderedSplitMinCategories() {
+        return orderedSplitMinCategories;
+    }
+
+    /**
+     * @param orderedSplitMinCategories the orderedSplitMinCategories to set
+     */
+    public void setOrderedSplitMinCategories(int orderedSplitMinCategories) {
+        this.orderedSplitMinCategories = orderedSplitMinCategories;
+    }
+
+    /**
+     * @return the largest number of bipartitions scored per discrete variable
+     * per node; above it, a random sample of this many (seeded by the tree)
+     * is scored instead. Zero (the default) scores them all
+     */
+    public int getMaxPartitionsPerVariable() {
+        return maxPartitionsPerVariable;
+    }
+
+    /**
+     * @param maxPartitionsPerVariable the maxPartitionsPerVariable to set
+     */
+    public void setMaxPartitionsPerVariable(int maxPartitionsPerVariable) {
+        this.maxPartitionsPerVariable = maxPartitionsPerVariable;
+    }
+
+    /**
+     * @return how many of the split variables each node searches, drawn at
+     * random (seeded by the tree) at every node: a count if at least one, a
+     * fraction of getVariableIndicesToSearchOver() if between zero and one,
+     * and all of them if zero (the default)
+     */
+    public double getSplitVariablesPerNode() {
+        return splitVariablesPerNode;
+    }
+
+    /**
+     * @param splitVariablesPerNode the splitVariablesPerNode to set
+     */
+    public void setSplitVariablesPerNode(double splitVariablesPerNode) {
+        this.splitVariablesPerNode = splitVariablesPerNode;
+    }
+
+    /**
+     * @return whether each tree's bootstrap sample is held as per-row
+     * multiplicities rather than duplicated indices (used only when the
+     * specification supports weighted lenses)
+     */
+    public boolean isWeightedBootstrap() {
+        return weightedBootstrap;
+    }
+
+    /**
+     * @param weightedBootstrap the weightedBootstrap to set
+     */
+    public void setWeightedBootstrap(boolean weightedBootstrap) {
+        this.weightedBootstrap = weightedBootstrap;
+    }
+
 }
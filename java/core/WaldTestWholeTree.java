@@ -100,7 +100,7 @@ public class WaldTestWholeTree implements Uncmin_methods, mcmc.mcmcFunction {
 //        Jama.Matrix thetaConstrained = convertToStackedBeta(constrainedX);
         int numObs = 0;
         for (DataLens h : v) {
-            numObs += h.getNumObs();
+            numObs += h.getWeightedNumObs();
         }
 
         // System.out.println(numObs);
@@ -395,7 +395,7 @@ public class WaldTestWholeTree implements Uncmin_methods, mcmc.mcmcFunction {
         int numObs = 0;
         for (int leaf = 0; leaf < v.size(); leaf++) {
             DataLens lens = v.get(leaf);
-            numObs += lens.getNumObs();
+            numObs += lens.getWeightedNumObs();
             ContainerMoment c = spec.getContainerMoment(lens);
             Jama.Matrix leafG = c.getMomentGWithoutDivision(cellBetaList.get(leaf));
             for (int j = 0; j < leafG.getRowDimension(); j++) {
@@ -457,7 +457,7 @@ public class WaldTestWholeTree implements Uncmin_methods, mcmc.mcmcFunction {
         Jama.Matrix g = new Jama.Matrix(0, 1);
         for (int leaf = 0; leaf < v.size(); leaf++) {
             DataLens lens = v.get(leaf);
-            numObs += lens.getNumObs();
+            numObs += lens.getWeightedNumObs();
             ContainerMoment c = spec.getContainerMoment(lens);
             g = pmUtility.stackMatrix(g, c.getMomentGWithoutDivision(cellBetaList.get(leaf)));
             SSE += c.computeMeasureOfFit(cellBetaList.get(leaf));
@@ -593,7 +593,7 @@ public class WaldTestWholeTree implements Uncmin_methods, mcmc.mcmcFunction {
         for (int leaf = 0; leaf < v.size(); leaf++) {
             // need to get gi, which is a little weird here
             DataLens lens = v.get(leaf);
-            numObs += lens.getNumObs();
+            numObs += lens.getWeightedNumObs();
             ContainerMoment c = spec.getContainerMoment(lens);
             for (int i = 0; i < lens.getNumObs(); i++) {
                 Jama.Matrix gi = new Jama.Matrix(numMoments, 1);
@@ -601,7 +601,7 @@ public class WaldTestWholeTree implements Uncmin_methods, mcmc.mcmcFunction {
                 for (int j = 0; j < leafGi.getRowDimension(); j++) {
                     gi.set(leaf * K + j, 0, leafGi.get(j, 0));
                 }
-                W.plusEquals(gi.times(gi.transpose()));
+                W.plusEquals(gi.times(gi.transpose()).times(lens.getWeight(i)));
             }
         }
 
@@ -635,7 +635,7 @@ public class WaldTestWholeTree implements Uncmin_methods, mcmc.mcmcFunction {
         int numObs = 0;
         for (int leaf = 0; leaf < v.size(); leaf++) {
             DataLens lens = v.get(leaf);
-            numObs += lens.getNumObs();
+            numObs += lens.getWeightedNumObs();
             ContainerMoment c = spec.getContainerMoment(lens);
             Jama.Matrix leafJacobian = c.getJacobianNoDivision(cellBetaList.get(leaf));
 //            System.out.println("leaf "+leaf+" Jacobian:");
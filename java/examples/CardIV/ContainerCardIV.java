@@ -39,8 +39,7 @@ public class ContainerCardIV extends ContainerMoment implements Uncmin_methods {
     double goodnessOfFit = -666; // make sure that we give back a crazy number if it is not called
     Jama.Matrix beta;
     boolean debugVerbose = false;
-    Jama.Matrix X;
-    Jama.Matrix Y;
+    DataLens lens;
 
     boolean failedEstimation = false;
 
@@ -49,14 +48,12 @@ public class ContainerCardIV extends ContainerMoment implements Uncmin_methods {
     boolean allParametersHomogeneous;
     MomentSpecificationCardIV spec;
 
-    Jama.Matrix instrumentColumn; // instrument (near4), extracted from last column of Z in the lens
+    int instrumentIndex; // instrument (near4), read from the last column of Z in the lens
 
     public ContainerCardIV(DataLens lens, boolean[] homogeneityIndex, Jama.Matrix homogeneityParameters, boolean allParametersHomogeneous, MomentSpecificationCardIV spec) {
-        Y = lens.getY();
-        X = lens.getX();
+        this.lens = lens;
         // Instrument is appended as the last column of Z so it flows through DataLens correctly
-        Jama.Matrix Z = lens.getZ();
-        instrumentColumn = Z.getMatrix(0, Z.getRowDimension() - 1, Z.getColumnDimension() - 1, Z.getColumnDimension() - 1);
+        instrumentIndex = lens.getColumnDimensionZ() - 1;
 
         this.spec = spec;
         this.homogeneityIndex = homogeneityIndex;
@@ -68,7 +65,7 @@ public class ContainerCardIV extends ContainerMoment implements Uncmin_methods {
     public void computeBetaAndErrors() {
         // System.out.println("In here");
 
-        if (Y.getRowDimension() < 30) {
+        if (lens.getNumObs() < 30) {
             // System.out.println("Too few observations");
 
             beta = new Jama.Matrix(spec.getNumParams(), 1); // zero vector; never null so WaldTestWholeTree.computeParameters() doesn't NPE
@@ -95,10 +92,9 @@ public class ContainerCardIV extends ContainerMoment implements Uncmin_methods {
                         betaAllHomogeneous.set(i, 0, homogeneityParameters.get(i, 0));
                     }
                     beta = betaAllHomogeneous;
-                    Jama.Matrix fit = X.times(beta);
                     double sse = 0;
-                    for (int i = 0; i < Y.getRowDimension(); i++) {
-                        sse += Math.pow(Y.get(i, 0) - fit.get(i, 0), 2);
+                    for (int i = 0; i < lens.getNumObs(); i++) {
+                        sse += Math.pow(lens.getY(i) - lens.getFittedValue(i, beta), 2);
                     }
                     goodnessOfFit = sse;
                     return;
@@ -106,6 +102,7 @@ public class ContainerCardIV extends ContainerMoment implements Uncmin_methods {
 
                 Uncmin_f77 minimizer = new Uncmin_f77(false);
                 double[] guess = new double[numParamsToOptimize + 1];
+                fillStartingGuess(guess, homogeneityIndex, allParametersHomogeneous);
 
                 double[] xpls = new double[numParamsToOptimize + 1];
                 double[] fpls = new double[2];
@@ -168,9 +165,8 @@ public class ContainerCardIV extends ContainerMoment implements Uncmin_methods {
                 // System.out.print("Composite beta inside ContainerCardIV: ");
                 // pmUtility.prettyPrintVector(beta);
                 // System.out.println(X.getRowDimension()+" "+X.getColumnDimension());
-                Jama.Matrix fit = (X.getMatrix(0, X.getRowDimension() - 1, 0, X.getColumnDimension() - 1)).times(beta);
-                for (int i = 0; i < Y.getRowDimension(); i++) {
-                    sse += Math.pow(Y.get(i, 0) - fit.get(i, 0), 2);
+                for (int i = 0; i < lens.getNumObs(); i++) {
+                    sse += Math.pow(lens.getY(i) - lens.getFittedValue(i, beta), 2);
                 }
                 goodnessOfFit = sse;
                 // goodnessOfFit = f_to_minimize(xpls);
@@ -216,8 +212,8 @@ public class ContainerCardIV extends ContainerMoment implements Uncmin_methods {
          * The constant is exogenous and included in Z; near4 is the excluded instrument.
          * X col 0 (education, the endogenous regressor) is excluded from Z.
          */
-        double g0 = error_i * X.get(i, 1);
-        double g1 = error_i * instrumentColumn.get(i, 0);
+        double g0 = error_i * lens.getX(i, 1);
+        double g1 = error_i * lens.getZ(i, instrumentIndex);
         g.set(0, 0, g.get(0, 0) + (Double.isFinite(g0) ? g0 : 0.0));
         g.set(1, 0, g.get(1, 0) + (Double.isFinite(g1) ? g1 : 0.0));
     }
@@ -233,12 +229,12 @@ public class ContainerCardIV extends ContainerMoment implements Uncmin_methods {
      */
     @Override
     public Matrix getGi(Matrix beta, int i) {
-        double fit = (X.getMatrix(i, i, 0, X.getColumnDimension() - 1).times(beta)).get(0, 0);
-        double error = fit - Y.get(i, 0);
+        double fit = lens.getFittedValue(i, beta);
+        double error = fit - lens.getY(i);
 
         Jama.Matrix gi = new Jama.Matrix(2, 1); // two moment conditions: Z = [constant, near4]
-        double g0 = error * X.get(i, 1);
-        double g1 = error * instrumentColumn.get(i, 0);
+        double g0 = error * lens.getX(i, 1);
+        double g1 = error * lens.getZ(i, instrumentIndex);
         gi.set(0, 0, Double.isFinite(g0) ? g0 : 0.0);
         gi.set(1, 0, Double.isFinite(g1) ? g1 : 0.0);
 
@@ -249,13 +245,18 @@ public class ContainerCardIV extends ContainerMoment implements Uncmin_methods {
     public Matrix getJacobianNoDivision(Matrix beta) {
         // Jacobian of the IV moment conditions g(beta) = Z_iv'(X*beta - Y) w.r.t. beta
         // dg/dbeta = Z_iv' * X, where Z_iv = [constant, near4]
-        int n = X.getRowDimension();
-        Jama.Matrix Ziv = new Jama.Matrix(n, 2);
-        for (int i = 0; i < n; i++) {
-            Ziv.set(i, 0, X.get(i, 1)); // constant column
-            Ziv.set(i, 1, instrumentColumn.get(i, 0)); // near4 instrument column
+        Jama.Matrix jacobian = new Jama.Matrix(2, lens.getColumnDimensionX());
+        for (int j = 0; j < lens.getColumnDimensionX(); j++) {
+            double s0 = 0;
+            double s1 = 0;
+            for (int i = 0; i < lens.getNumObs(); i++) {
+                s0 += lens.getX(i, 1) * lens.getX(i, j); // constant column
+                s1 += lens.getZ(i, instrumentIndex) * lens.getX(i, j); // near4 instrument column
+            }
+            jacobian.set(0, j, s0);
+            jacobian.set(1, j, s1);
         }
-        return Ziv.transpose().times(X);
+        return jacobian;
     }
 
     @Override
@@ -267,12 +268,9 @@ public class ContainerCardIV extends ContainerMoment implements Uncmin_methods {
         int numMoments = spec.getNumMoments(); // Number of instruments (columns of instruments)
         Jama.Matrix g = new Jama.Matrix(numMoments, 1); // x'e, one row for each x
         // (X.getMatrix(i, i, 0, X.getColumnDimension() - 2).times(beta)).get(0, 0);
-        Jama.Matrix fittedY = (X.getMatrix(0, X.getRowDimension() - 1, 0, X.getColumnDimension() - 1)).times(beta);
-        Jama.Matrix e = fittedY.minus(Y);
-
-        for (int i = 0; i < X.getRowDimension(); i++) {
+        for (int i = 0; i < lens.getNumObs(); i++) {
             // Instead of X'e (as in OLS), use instruments'e (in IV)
-            addGi(g, e.get(i, 0), i);
+            addGi(g, lens.getFittedValue(i, beta) - lens.getY(i), i);
         }
         return g;
     }
@@ -283,10 +281,11 @@ public class ContainerCardIV extends ContainerMoment implements Uncmin_methods {
         // this isn't anything critical, so don't worry about it
 
         // actually, i think that it is better to use SSE
-        Jama.Matrix fittedY = (X.getMatrix(0, X.getRowDimension() - 1, 0, X.getColumnDimension() - 1)).times(beta);
-        Jama.Matrix e = fittedY.minus(Y);
-
-        return e.normF();
+        double norm = 0;
+        for (int i = 0; i < lens.getNumObs(); i++) {
+            norm = Math.hypot(norm, lens.getFittedValue(i, beta) - lens.getY(i));
+        }
+        return norm;
     }
 
     private double getMomentObjectiveFunction(Jama.Matrix beta, boolean debugMoment) {
@@ -295,21 +294,18 @@ public class ContainerCardIV extends ContainerMoment implements Uncmin_methods {
         Jama.Matrix g = new Jama.Matrix(numMoments, 1); // x'e, one row for each x
 
         // Jama.Matrix fittedY = X.times(beta);
-        Jama.Matrix fittedY = (X.getMatrix(0, X.getRowDimension() - 1, 0, X.getColumnDimension() - 1)).times(beta);
-
-        Jama.Matrix e = fittedY.minus(Y);
         // Jama.Matrix omega = new Jama.Matrix(numMoments, numMoments);
 
         // turns out using gi method here is crazy slow!        
-        for (int i = 0; i < X.getRowDimension(); i++) {
+        for (int i = 0; i < lens.getNumObs(); i++) {
             // Jama.Matrix gi = getGi(e.get(i, 0), i);
 //            pmUtility.prettyPrintVector(gi);
             // g.plusEquals(gi);
-            addGi(g, e.get(i, 0), i);
+            addGi(g, lens.getFittedValue(i, beta) - lens.getY(i), i);
             // omega.plusEquals(gi.times(gi.transpose()));
         }
         // omega.timesEquals(1.0 / Y.getRowDimension());
-        g.timesEquals(1.0 / Y.getRowDimension());
+        g.timesEquals(1.0 / lens.getNumObs());
         // double q = (((g.transpose()).times(omega.inverse())).times(g)).get(0, 0); // this is the continuous updating estimator (CUE)
         // that appears to sometimes generate perverse decreases in fit when splitting (probably due to some numerical instability in inversion, and the confounding of fits versus variance)
         double q = ((g.transpose()).times(g)).get(0, 0); // this is gmm with identity weighting matrix
@@ -384,7 +380,8 @@ public class ContainerCardIV extends ContainerMoment implements Uncmin_methods {
         return getMomentObjectiveFunction(b, false);
     }
 
-    boolean didEstimatorFail() {
+    @Override
+    public boolean didEstimatorFail() {
         return failedEstimation;
     }
 
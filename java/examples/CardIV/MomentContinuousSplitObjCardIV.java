@@ -70,11 +70,15 @@ public class MomentContinuousSplitObjCardIV extends MomentContinuousSplitObj {
 
         ContainerCardIV leftLinear = new ContainerCardIV(container.getLeft(), spec.getHomogeneousIndex(), spec.getHomogeneousParameterVector(), false, spec); //This object will compute the beta and MSE for the left split
         ContainerCardIV rightLinear = new ContainerCardIV(container.getRight(), spec.getHomogeneousIndex(), spec.getHomogeneousParameterVector(), false, spec);
+        leftLinear.setStartingBeta(startingBeta);
+        rightLinear.setStartingBeta(startingBeta);
         leftLinear.computeBetaAndErrors();
         rightLinear.computeBetaAndErrors();
 
         leftMSE = leftLinear.getGoodnessOfFit();
         rightMSE = rightLinear.getGoodnessOfFit();
+        leftFit = leftLinear;
+        rightFit = rightLinear;
 
 //        if (leftLinear.getBeta() != null && rightLinear.getBeta() != null) {
 //            pmUtility.prettyPrintVector(leftLinear.getBeta());
@@ -105,7 +109,7 @@ public class MomentContinuousSplitObjCardIV extends MomentContinuousSplitObj {
 
     @Override
     public double f_to_minimize(double splitPoint) {
-        container = SplitContainer.getContinuousDataSplit(lens, splitPoint, indexSplitVariable); //This returns the data split into each leaf based on splitpoint and index of split variable
+        container = getCandidateSplit(lens, splitPoint); //This returns the data split into each leaf based on splitpoint and index of split variable
         numObsLeft = container.getLeft().getNumObs();
         numObsRight = container.getRight().getNumObs();
         return getSSE();
@@ -71,6 +71,8 @@ public class MomentPartitionObjCardIV extends MomentPartitionObj {
         ContainerCardIV leftLinear = new ContainerCardIV(container.getLeft(), spec.getHomogeneousIndex(), spec.getHomogeneousParameterVector(), false, spec); //This object will compute the beta and MSE for the left split
         ContainerCardIV rightLinear = new ContainerCardIV(container.getRight(), spec.getHomogeneousIndex(), spec.getHomogeneousParameterVector(), false, spec);
         
+        leftLinear.setStartingBeta(startingBeta);
+        rightLinear.setStartingBeta(startingBeta);
         leftLinear.computeBetaAndErrors();
         rightLinear.computeBetaAndErrors();
         
@@ -79,6 +81,8 @@ public class MomentPartitionObjCardIV extends MomentPartitionObj {
         
         leftMSE = leftLinear.getGoodnessOfFit();
         rightMSE = rightLinear.getGoodnessOfFit();
+        leftFit = leftLinear;
+        rightFit = rightLinear;
                 
         // System.out.println(numObsLeft+" "+numObsRight+" "+leftMSE+" "+rightMSE);
         // return (leftMSE + rightMSE) / X.getNumObs();
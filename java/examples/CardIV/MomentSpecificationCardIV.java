@@ -26,8 +26,10 @@ package examples.CardIV;
 // import JSci.maths.statistics.NormalDistribution;
 import JSci.maths.statistics.NormalDistribution;
 import Jama.Matrix;
+import core.ColumnStore;
 import core.ContainerMoment;
 import core.DataLens;
+import core.HeapColumnStore;
 import core.IntegerPartition;
 import core.MomentContinuousSplitObj;
 import core.MomentPartitionObj;
@@ -48,6 +50,7 @@ public class MomentSpecificationCardIV implements MomentSpecification {
     Jama.Matrix instrument; // instrument column (near4), stored separately so DataLens X has same column count as getNumParams()
     Jama.Matrix Y;
     Jama.Matrix Z;
+    private ColumnStore columnStore;
     Jama.Matrix balancingVector; // is treatment status in the RCT setting
     int numObs;
     int numtrees;
@@ -210,8 +213,14 @@ public class MomentSpecificationCardIV implements MomentSpecification {
 
     @Override
     public ContainerMoment computeOptimalBeta(DataLens lens, boolean allParametersHomogeneous) {
+        return computeOptimalBeta(lens, allParametersHomogeneous, null);
+    }
+
+    @Override
+    public ContainerMoment computeOptimalBeta(DataLens lens, boolean allParametersHomogeneous, Jama.Matrix startingBeta) {
         // System.out.println("Are all parameters homogeneous? " + allParametersHomogeneous);
         ContainerCardIV l = new ContainerCardIV(lens, homogeneityIndex, homogeneousParameterVector, allParametersHomogeneous, this);
+        l.setStartingBeta(startingBeta);
         l.computeBetaAndErrors();
         failedEstimator = l.didEstimatorFail();
         return l;
@@ -232,6 +241,14 @@ public class MomentSpecificationCardIV implements MomentSpecification {
         return Z;
     }
 
+    @Override
+    public ColumnStore getColumnStore() {
+        if (columnStore == null) {
+            columnStore = new HeapColumnStore(X, Y, Z);
+        }
+        return columnStore;
+    }
+
     @Override
     public Matrix getX() {
         return X;
@@ -264,6 +281,7 @@ public class MomentSpecificationCardIV implements MomentSpecification {
 
     @Override
     public void loadData(long rngSeed) {
+        columnStore = null;
 
         int numObsFile = 0;
         try {
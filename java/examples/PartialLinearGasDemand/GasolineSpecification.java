@@ -26,12 +26,15 @@ package examples.PartialLinearGasDemand;
 // import JSci.maths.statistics.NormalDistribution;
 import JSci.maths.statistics.NormalDistribution;
 import Jama.Matrix;
+import core.ColumnStore;
 import core.ContainerMoment;
 import core.DataLens;
+import core.HeapColumnStore;
 import core.IntegerPartition;
 import core.MomentContinuousSplitObj;
 import core.MomentPartitionObj;
 import core.MomentSpecification;
+import core.VariableType;
 import java.io.FileReader;
 import java.io.BufferedReader;
 import java.util.Random;
@@ -46,6 +49,7 @@ public class GasolineSpecification implements MomentSpecification {
     Jama.Matrix X;
     Jama.Matrix Y;
     Jama.Matrix Z;
+    private ColumnStore columnStore;
     Jama.Matrix balancingVector; // is treatment status in the RCT setting
     int numObs;
     int numtrees;
@@ -212,6 +216,14 @@ public class GasolineSpecification implements MomentSpecification {
         return Z;
     }
 
+    @Override
+    public ColumnStore getColumnStore() {
+        if (columnStore == null) {
+            columnStore = new HeapColumnStore(X, Y, Z);
+        }
+        return columnStore;
+    }
+
     @Override
     public int numberoftrees() {
         return numtrees;
@@ -222,6 +234,18 @@ public class GasolineSpecification implements MomentSpecification {
         return DiscreteVariables;
     }
 
+    @Override
+    public VariableType getVariableType(int k) {
+        /**
+         * Income and life cycle are ordered brackets: split between levels,
+         * not into arbitrary groups or along a grid
+         */
+        if (k == 5 || k == 7) {
+            return VariableType.ORDINAL;
+        }
+        return MomentSpecification.super.getVariableType(k);
+    }
+
     @Override
     public Matrix getBetaTruth(Matrix zi, Random rng) {
         // we don't know, this shouldn't be called in a real application
@@ -235,6 +259,7 @@ public class GasolineSpecification implements MomentSpecification {
 
     @Override
     public void loadData(long rngSeed) {
+        columnStore = null;
 
         int numObsFile = 0;
         try {
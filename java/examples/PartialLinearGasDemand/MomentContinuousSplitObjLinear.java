@@ -25,6 +25,7 @@ package examples.PartialLinearGasDemand;
 
 import core.MomentContinuousSplitObj;
 import core.DataLens;
+import core.LeastSquaresSweepObjective;
 import core.MomentSpecification;
 import core.SplitContainer;
 import optimization.Uncmin_methods;
@@ -33,7 +34,7 @@ import optimization.Uncmin_methods;
  *
  * @author Stephen P. Ryan <stephen.p.ryan@wustl.edu>
  */
-public class MomentContinuousSplitObjLinear extends MomentContinuousSplitObj {
+public class MomentContinuousSplitObjLinear extends MomentContinuousSplitObj implements LeastSquaresSweepObjective {
 
     SplitContainer container; 
     DataLens lens;
@@ -77,6 +78,8 @@ public class MomentContinuousSplitObjLinear extends MomentContinuousSplitObj {
 
         leftMSE = leftLinear.getGoodnessOfFit();
         rightMSE = rightLinear.getGoodnessOfFit();
+        leftFit = leftLinear;
+        rightFit = rightLinear;
 
 //        if (leftLinear.getBeta() != null && rightLinear.getBeta() != null) {
 //            pmUtility.prettyPrintVector(leftLinear.getBeta());
@@ -107,10 +110,57 @@ public class MomentContinuousSplitObjLinear extends MomentContinuousSplitObj {
 
     @Override
     public double f_to_minimize(double splitPoint) {
-        container = SplitContainer.getContinuousDataSplit(lens, splitPoint, indexSplitVariable); //This returns the data split into each leaf based on splitpoint and index of split variable
+        container = getCandidateSplit(lens, splitPoint); //This returns the data split into each leaf based on splitpoint and index of split variable
         numObsLeft = container.getLeft().getNumObs();
         numObsRight = container.getRight().getNumObs();
         return getSSE();
     }
 
+    /**
+     * ContainerLinear here residualizes Y on the homogeneous columns and runs
+     * OLS on the rest, which the sweep reproduces exactly.
+     */
+    @Override
+    public int getSweepDimension() {
+        int p = 0;
+        for (boolean b : spec.getHomogeneousIndex()) {
+            if (!b) {
+                p++;
+            }
+        }
+        return p;
+    }
+
+    @Override
+    public double getSweepObservation(DataLens lens, int i, double[] xi) {
+        boolean[] homogeneityIndex = spec.getHomogeneousIndex();
+        double yi = lens.getY(i);
+        int counter = 0;
+        for (int k = 0; k < homogeneityIndex.length; k++) {
+            if (homogeneityIndex[k]) {
+                yi -= lens.getX(i, k) * spec.getHomogeneousParameter(k);
+            } else {
+                xi[counter] = lens.getX(i, k);
+                counter++;
+            }
+        }
+        return yi;
+    }
+
+    @Override
+    public int getSweepMinimumObservations() {
+        return 30; // same cutoff as ContainerLinear
+    }
+
+    /**
+     * A node where a regressor is collinear (hhfaminc is both a column of X
+     * and a split variable, so it can be constant within a child) still gets
+     * a finite OLSsvd-style fit from ContainerLinear, so the sweep scores it
+     * at the minimum-norm solution instead of rejecting the split.
+     */
+    @Override
+    public boolean isMinimumNormFit() {
+        return true;
+    }
+
 }
@@ -84,6 +84,8 @@ public class MomentPartitionObjLinear extends MomentPartitionObj {
         
         leftMSE = leftLinear.getGoodnessOfFit();
         rightMSE = rightLinear.getGoodnessOfFit();
+        leftFit = leftLinear;
+        rightFit = rightLinear;
                 
         // System.out.println(numObsLeft+" "+numObsRight+" "+leftMSE+" "+rightMSE);
         // return (leftMSE + rightMSE) / X.getNumObs();
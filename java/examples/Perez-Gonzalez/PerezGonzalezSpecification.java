@@ -26,8 +26,10 @@ package examples.PerezGonzalez;
 // import JSci.maths.statistics.NormalDistribution;
 import JSci.maths.statistics.NormalDistribution;
 import Jama.Matrix;
+import core.ColumnStore;
 import core.ContainerMoment;
 import core.DataLens;
+import core.HeapColumnStore;
 import core.IntegerPartition;
 import core.MomentContinuousSplitObj;
 import core.MomentPartitionObj;
@@ -46,6 +48,7 @@ public class PerezGonzalezSpecification implements MomentSpecification {
     Jama.Matrix X;
     Jama.Matrix Y;
     Jama.Matrix Z;
+    private ColumnStore columnStore;
     Jama.Matrix balancingVector; // is treatment status in the RCT setting
     int numObs;
     int numtrees;
@@ -200,6 +203,14 @@ public class PerezGonzalezSpecification implements MomentSpecification {
         return Z;
     }
 
+    @Override
+    public ColumnStore getColumnStore() {
+        if (columnStore == null) {
+            columnStore = new HeapColumnStore(X, Y, Z);
+        }
+        return columnStore;
+    }
+
     @Override
     public int numberoftrees() {
         return numtrees;
@@ -223,6 +234,7 @@ public class PerezGonzalezSpecification implements MomentSpecification {
 
     @Override
     public void loadData(long rngSeed) {
+        columnStore = null;
 
         int numObsFile = 0;
         try {
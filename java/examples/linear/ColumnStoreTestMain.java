@@ -0,0 +1,184 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2025 Stephen P. Ryan <stephen.p.ryan@wustl.edu>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package examples.linear;
+
+import Jama.Matrix;
+import core.ColumnStore;
+import core.CompactColumnStore;
+import core.DataLens;
+import core.HeapColumnStore;
+import core.MappedColumnStore;
+import core.MomentForest;
+import core.TreeOptions;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * Checks the alternative column stores against HeapColumnStore. A
+ * CompactColumnStore must return the same values cell by cell and grow the
+ * same forest; with float32 continuous columns it must match a heap store
+ * built from the float-rounded Z. A MappedColumnStore must read back what
+ * MappedColumnStore.write wrote, reject a file that is not a column store,
+ * and grow the same forest when a specification is pointed at the file.
+ * Prints the largest discrepancy for each
+ * case and exits with status 1 if any case fails.
+ *
+ * @author Stephen P. Ryan <stephen.p.ryan@wustl.edu>
+ */
+public class ColumnStoreTestMain {
+
+    private static final int NUM_TREES = 10;
+    private static final long FOREST_SEED = 314;
+
+    public static void main(String[] args) throws IOException {
+        boolean passed = true;
+
+        LinearMomentSpecification spec = new LinearMomentSpecification(2000, 2);
+        spec.loadData(787);
+        Matrix X = spec.getX();
+        Matrix Y = spec.getY();
+        Matrix Z = spec.getZ();
+        ColumnStore heap = new HeapColumnStore(X, Y, Z);
+
+        passed &= checkCompact(spec, heap, X, Y, Z, false);
+        passed &= checkCompact(spec, heap, X, Y, Z, true);
+        passed &= checkMapped(spec, heap);
+
+        spec.setCompactColumnStore(false);
+        ColumnStore specStore = spec.getColumnStore();
+        boolean wired = specStore instanceof CompactColumnStore && spec.getColumnStore() == specStore;
+        System.out.println("Specification option: " + specStore.getClass().getSimpleName() + (wired ? ", built once" : ", NOT the expected store"));
+        passed &= wired;
+
+        System.out.println(passed ? "All checks passed" : "Some checks FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compares a CompactColumnStore with a HeapColumnStore holding the
+     * values it should return, cell by cell and through the forests they
+     * grow
+     */
+    private static boolean checkCompact(LinearMomentSpecification spec, ColumnStore heap, Matrix X, Matrix Y, Matrix Z, boolean floatContinuous) {
+        Boolean[] discreteVector = spec.getDiscreteVector();
+        ColumnStore compact = new CompactColumnStore(heap, discreteVector, floatContinuous);
+        ColumnStore reference = heap;
+        if (floatContinuous) {
+            Matrix roundedZ = Z.copy();
+            for (int j = 0; j < Z.getColumnDimension(); j++) {
+                if (!discreteVector[j]) {
+                    for (int i = 0; i < Z.getRowDimension(); i++) {
+                        roundedZ.set(i, j, (float) Z.get(i, j));
+                    }
+                }
+            }
+            reference = new HeapColumnStore(X, Y, roundedZ);
+        }
+
+        int cellMismatches = countCellMismatches(compact, reference, discreteVector);
+        double difference = getMaxEstimateDifference(growForest(spec, compact), growForest(spec, reference), Z);
+        boolean passed = cellMismatches == 0 && difference == 0;
+        System.out.println("Compact store (" + (floatContinuous ? "float32" : "double") + " continuous Z): cell mismatches " + cellMismatches
+                + ", max forest estimate difference " + difference + (passed ? "" : "  FAILED"));
+        return passed;
+    }
+
+    private static int countCellMismatches(ColumnStore a, ColumnStore b, Boolean[] discreteVector) {
+        int mismatches = 0;
+        for (int i = 0; i < b.getNumRows(); i++) {
+            if (a.getY(i) != b.getY(i)) {
+                mismatches++;
+            }
+            for (int j = 0; j < b.getNumColumnsX(); j++) {
+                if (a.getX(i, j) != b.getX(i, j)) {
+                    mismatches++;
+                }
+            }
+            for (int j = 0; j < b.getNumColumnsZ(); j++) {
+                if (a.getZ(i, j) != b.getZ(i, j) || (discreteVector[j] && a.getCategory(i, j) != b.getCategory(i, j))) {
+                    mismatches++;
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Writes the heap store to a temporary file, maps it back, and grows a
+     * forest from a specification that loads the file in place of its data
+     */
+    private static boolean checkMapped(LinearMomentSpecification spec, ColumnStore heap) throws IOException {
+        File file = File.createTempFile("columnstore", ".mfcols");
+        file.deleteOnExit();
+        MappedColumnStore.write(heap, file.getPath());
+        int cellMismatches = countCellMismatches(new MappedColumnStore(file.getPath()), heap, spec.getDiscreteVector());
+
+        LinearMomentSpecification mappedSpec = new LinearMomentSpecification(heap.getNumRows(), heap.getNumColumnsX());
+        mappedSpec.setColumnStoreFile(file.getPath());
+        mappedSpec.loadData(0);
+        boolean loaded = mappedSpec.getX() == null && mappedSpec.getColumnStore() instanceof MappedColumnStore;
+        double difference = getMaxEstimateDifference(growForest(mappedSpec, mappedSpec.getColumnStore()), growForest(spec, heap), spec.getZ());
+
+        File notAStore = File.createTempFile("columnstore", ".csv");
+        notAStore.deleteOnExit();
+        try (FileWriter out = new FileWriter(notAStore)) {
+            out.write("y,x1,x2,z1,z2,z3\n");
+        }
+        boolean rejected = false;
+        try {
+            new MappedColumnStore(notAStore.getPath());
+        } catch (IOException e) {
+            rejected = true;
+        }
+
+        boolean passed = cellMismatches == 0 && loaded && difference == 0 && rejected;
+        System.out.println("Mapped store round trip: cell mismatches " + cellMismatches + ", loaded by the specification " + loaded
+                + ", max forest estimate difference " + difference + ", bad file rejected " + rejected + (passed ? "" : "  FAILED"));
+        return passed;
+    }
+
+    /**
+     * Compares the estimates of two forests at the first 100 observed z
+     */
+    private static double getMaxEstimateDifference(MomentForest forestA, MomentForest forestB, Matrix Z) {
+        double difference = 0;
+        for (int i = 0; i < 100; i++) {
+            Matrix zi = Z.getMatrix(i, i, 0, Z.getColumnDimension() - 1);
+            Matrix betaA = forestA.getEstimatedParameterForest(zi);
+            Matrix betaB = forestB.getEstimatedParameterForest(zi);
+            difference = Math.max(difference, betaA.minus(betaB).normInf());
+        }
+        return difference;
+    }
+
+    private static MomentForest growForest(LinearMomentSpecification spec, ColumnStore data) {
+        MomentForest forest = new MomentForest(spec, NUM_TREES, FOREST_SEED, new DataLens(data, null), false, new TreeOptions(0.01, 50, 1E-3, 6, false));
+        forest.growForest();
+        return forest;
+    }
+
+}
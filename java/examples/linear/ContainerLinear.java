@@ -50,8 +50,6 @@ public class ContainerLinear extends ContainerMoment implements Uncmin_methods {
     Jama.Matrix variance;
     boolean debugVerbose = false;
     DataLens lens;
-    Jama.Matrix X;
-    Jama.Matrix Y;
     boolean[] homogeneityIndex;
     Jama.Matrix homogeneityParameters;
     boolean allParametersHomogeneous;
@@ -61,8 +59,6 @@ public class ContainerLinear extends ContainerMoment implements Uncmin_methods {
     public ContainerLinear(DataLens lens, boolean[] homogeneityIndex, Jama.Matrix homogeneityParameters, boolean allParametersHomogeneous, MomentSpecification spec) {
         this.lens = lens;
         // computeBetaAndErrors();
-        X = lens.getX();
-        Y = lens.getY();
         this.homogeneityIndex = homogeneityIndex;
         this.homogeneityParameters = homogeneityParameters;
         this.allParametersHomogeneous = allParametersHomogeneous;
@@ -72,7 +68,7 @@ public class ContainerLinear extends ContainerMoment implements Uncmin_methods {
     @Override
     public void computeBetaAndErrors() {
     	// System.out.println("In compute beta and errors");
-        if (Y.getRowDimension() < Math.max(30, X.getColumnDimension())) {
+        if (lens.getWeightedNumObs() < Math.max(30, lens.getColumnDimensionX())) {
             //System.out.println("Too few observations, dim(Y)  = "+Y.getRowDimension() );
             beta = null;
             goodnessOfFit = Double.POSITIVE_INFINITY;
@@ -89,6 +85,7 @@ public class ContainerLinear extends ContainerMoment implements Uncmin_methods {
 
                 Uncmin_f77 minimizer = new Uncmin_f77(false);
                 double[] guess = new double[numParams + 1];
+                fillStartingGuess(guess, homogeneityIndex, allParametersHomogeneous);
 
                 double[] xpls = new double[numParams + 1];
                 double[] fpls = new double[2];
@@ -117,7 +114,7 @@ public class ContainerLinear extends ContainerMoment implements Uncmin_methods {
                 if (numParams == spec.getNumParams() && 1==1) {
                     // System.out.println("no homogeneous parameters, just use OLS");
                     // Jama.Matrix olsBeta = pmUtility.OLSsvd(X, Y, false);
-                    Jama.Matrix olsBeta = pmUtility.OLS(X, Y, false);
+                    Jama.Matrix olsBeta = lens.getOLS();
                     
                     // System.out.println("Average of Y is :"+pmUtility.mean(Y, 0));
                     for (int i = 0; i < olsBeta.getRowDimension(); i++) {
@@ -132,27 +129,14 @@ public class ContainerLinear extends ContainerMoment implements Uncmin_methods {
 //                    
 //                    System.exit(0);
                 } else {
-                    boolean tryResidualizing = false;
+                    boolean tryResidualizing = true;
                     if (tryResidualizing) {
-                        Jama.Matrix Yres = Y.copy();
-                        Jama.Matrix Xres = null;
-                        boolean first = true;
-                        for (int k = 0; k < X.getColumnDimension(); k++) {
-                            if (homogeneityIndex[k]) {
-                                for (int i = 0; i < Y.getRowDimension(); i++) {
-                                    Yres.set(i, 0, Yres.get(i, 0) - X.get(i, k) * homogeneityParameters.get(k, 0));
-                                }
-                            } else {
-                                if (first) {
-                                    first = false;
-                                    Xres = pmUtility.getColumn(X, k);
-                                } else {
-                                    Xres = pmUtility.concatMatrix(Xres, pmUtility.getColumn(X, k));
-                                }
-                            }
-                        }
-
-                        Jama.Matrix olsBeta = pmUtility.OLSsvd(Xres, Yres, false);
+                        /**
+                         * Partial out the imposed homogeneous parameters and solve OLS
+                         * on the remaining columns in closed form, from the lens cross
+                         * products
+                         */
+                        Jama.Matrix olsBeta = lens.getPartialledOLS(homogeneityIndex, homogeneityParameters);
 
                         // System.out.println("Average of Y is :"+pmUtility.mean(Y, 0));
                         for (int i = 0; i < olsBeta.getRowDimension(); i++) {
@@ -187,10 +171,10 @@ public class ContainerLinear extends ContainerMoment implements Uncmin_methods {
                     }
                 }
                 
-                Jama.Matrix betaUncmin = new Jama.Matrix(X.getColumnDimension(), 1);
+                Jama.Matrix betaUncmin = new Jama.Matrix(lens.getColumnDimensionX(), 1);
                 int counter = 0;
 
-                for (int i = 0; i < X.getColumnDimension(); i++) {
+                for (int i = 0; i < lens.getColumnDimensionX(); i++) {
                     if (homogeneityIndex[i]) {
                         betaUncmin.set(i, 0, homogeneityParameters.get(i, 0));
                     } else {
@@ -201,9 +185,8 @@ public class ContainerLinear extends ContainerMoment implements Uncmin_methods {
                 
                 beta = betaUncmin.copy();
                 double sse = 0;
-                Jama.Matrix fit = X.times(beta);
-                for (int i = 0; i < Y.getRowDimension(); i++) {
-                    sse += Math.pow(Y.get(i, 0) - fit.get(i, 0), 2);
+                for (int i = 0; i < lens.getNumObs(); i++) {
+                    sse += lens.getWeight(i) * Math.pow(lens.getY(i) - lens.getFittedValue(i, beta), 2);
                 }
                 goodnessOfFit = sse;
                 
@@ -229,16 +212,16 @@ public class ContainerLinear extends ContainerMoment implements Uncmin_methods {
                     // compute variance formula, B = G'omega-1G, then B-1, compare to above
                     // get G first
                     Jama.Matrix G = getJacobianNoDivision(beta);
-                    G.timesEquals(1.0 / Y.getRowDimension());
-                    Jama.Matrix omega = new Jama.Matrix(X.getColumnDimension(), X.getColumnDimension());
-                    Jama.Matrix fits = X.times(beta);
-                    Jama.Matrix errors = fits.minus(Y);
+                    G.timesEquals(1.0 / lens.getWeightedNumObs());
+                    Jama.Matrix omega = new Jama.Matrix(lens.getColumnDimensionX(), lens.getColumnDimensionX());
+                    Jama.Matrix fits = lens.getX().times(beta);
+                    Jama.Matrix errors = fits.minus(lens.getY());
                     System.out.println("sigma2: " + pmUtility.sumSquaredElements(errors));
-                    for (int i = 0; i < Y.getRowDimension(); i++) {
+                    for (int i = 0; i < lens.getNumObs(); i++) {
                         Jama.Matrix gi = getGi(beta, i);
-                        omega.plusEquals(gi.times(gi.transpose()));
+                        omega.plusEquals(gi.times(gi.transpose()).times(lens.getWeight(i)));
                     }
-                    omega.timesEquals(1.0 / Y.getRowDimension());
+                    omega.timesEquals(1.0 / lens.getWeightedNumObs());
                     Jama.Matrix B = (G.transpose()).times(omega.inverse()).times(G);
 
                     // that line above why the numbers are not identical? we multiple X'X by X'Xinv by X'X. Maybe that cancellation is numerically imperfect?
@@ -261,7 +244,7 @@ public class ContainerLinear extends ContainerMoment implements Uncmin_methods {
                     System.out.println("B inverse:");
                     pmUtility.prettyPrint(B.inverse());
                     System.out.println("Divided by n:");
-                    pmUtility.prettyPrint(B.inverse().times(1.0 / Y.getRowDimension()));
+                    pmUtility.prettyPrint(B.inverse().times(1.0 / lens.getWeightedNumObs()));
 
                     System.exit(0);
                 } 
@@ -273,9 +256,9 @@ public class ContainerLinear extends ContainerMoment implements Uncmin_methods {
                     e.printStackTrace();
                     System.out.println("Something went wrong...Matrix not invertible?");
                     System.out.println("X:");           
-                    pmUtility.prettyPrint(X);
+                    pmUtility.prettyPrint(lens.getX());
                     System.out.println("Y:");           
-                    pmUtility.prettyPrint(Y);                                      
+                    pmUtility.prettyPrint(lens.getY());                                      
                 }
                 
                 beta = null;
@@ -296,8 +279,8 @@ public class ContainerLinear extends ContainerMoment implements Uncmin_methods {
      */
     public void addGi(Jama.Matrix g, double error_i, int i) {
         // Jama.Matrix gi = new Jama.Matrix(X.getColumnDimension(), 1);
-        for (int k = 0; k < X.getColumnDimension(); k++) {
-            g.set(k, 0, g.get(k, 0) + error_i * X.get(i, k));
+        for (int k = 0; k < lens.getColumnDimensionX(); k++) {
+            g.set(k, 0, g.get(k, 0) + error_i * lens.getX(i, k));
         }
     }
 
@@ -312,11 +295,11 @@ public class ContainerLinear extends ContainerMoment implements Uncmin_methods {
      */
     @Override
     public Matrix getGi(Matrix beta, int i) {
-        double fit = (X.getMatrix(i, i, 0, X.getColumnDimension() - 1).times(beta)).get(0, 0);
-        double error = fit - Y.get(i, 0);
-        Jama.Matrix gi = new Jama.Matrix(X.getColumnDimension(), 1);
-        for (int k = 0; k < X.getColumnDimension(); k++) {
-            gi.set(k, 0, error * X.get(i, k));
+        double fit = lens.getFittedValue(i, beta);
+        double error = fit - lens.getY(i);
+        Jama.Matrix gi = new Jama.Matrix(lens.getColumnDimensionX(), 1);
+        for (int k = 0; k < lens.getColumnDimensionX(); k++) {
+            gi.set(k, 0, error * lens.getX(i, k));
         }
 
         return gi;
@@ -326,7 +309,7 @@ public class ContainerLinear extends ContainerMoment implements Uncmin_methods {
     public Matrix getJacobianNoDivision(Jama.Matrix beta) {
         // in OLS case, super simple
         // just X'X
-        return (X.transpose()).times(X);
+        return lens.getXtX();
 
         // in general it is this
         /**
@@ -356,15 +339,13 @@ public class ContainerLinear extends ContainerMoment implements Uncmin_methods {
         // Jama.Matrix runningTotal = new Jama.Matrix(X.getRowDimension(), X.getColumnDimension());
         int numMoments = spec.getNumMoments();
         Jama.Matrix g = new Jama.Matrix(numMoments, 1); // x'e, one row for each x
-        Jama.Matrix fittedY = X.times(beta);
-        Jama.Matrix e = fittedY.minus(Y);
 
         // turns out using gi method here is crazy slow!
         // because i was recalculating vectors for individual observations each time; totally unnecessary
-        for (int i = 0; i < X.getRowDimension(); i++) {
+        for (int i = 0; i < lens.getNumObs(); i++) {
             // Jama.Matrix gi = getGi(e.get(i, 0), i);
             // g.plusEquals(gi);
-            addGi(g, e.get(i, 0), i);
+            addGi(g, lens.getWeight(i) * (lens.getFittedValue(i, beta) - lens.getY(i)), i);
         }
         // cannot have this here since we divide by different n in different places!
         // g.timesEquals(1.0 / Y.getRowDimension());
@@ -373,10 +354,12 @@ public class ContainerLinear extends ContainerMoment implements Uncmin_methods {
 
     @Override
     public double computeMeasureOfFit(Jama.Matrix beta) {
-        Jama.Matrix fittedY = X.times(beta);
-        Jama.Matrix e = fittedY.minus(Y);
-
-        return ((e.transpose()).times(e)).get(0, 0);
+        double ssr = 0;
+        for (int i = 0; i < lens.getNumObs(); i++) {
+            double ei = lens.getFittedValue(i, beta) - lens.getY(i);
+            ssr += lens.getWeight(i) * ei * ei;
+        }
+        return ssr;
     }
 
     private double getMomentObjectiveFunction(Jama.Matrix beta, boolean debugMoment) {
@@ -388,25 +371,25 @@ public class ContainerLinear extends ContainerMoment implements Uncmin_methods {
         // Jama.Matrix runningTotal = new Jama.Matrix(X.getRowDimension(), X.getColumnDimension());
         int numMoments = spec.getNumMoments();
         Jama.Matrix g = new Jama.Matrix(numMoments, 1); // x'e, one row for each x
-        Jama.Matrix fittedY = X.times(beta);
-        Jama.Matrix e = fittedY.minus(Y);
         // Jama.Matrix omega = new Jama.Matrix(numMoments, numMoments);
 
         // turns out using gi method here is crazy slow!        
-        for (int i = 0; i < X.getRowDimension(); i++) {
+        for (int i = 0; i < lens.getNumObs(); i++) {
             // Jama.Matrix gi = getGi(e.get(i, 0), i);
 //            pmUtility.prettyPrintVector(gi);
             // g.plusEquals(gi);
-            addGi(g, e.get(i, 0), i);
+            addGi(g, lens.getWeight(i) * (lens.getFittedValue(i, beta) - lens.getY(i)), i);
             // omega.plusEquals(gi.times(gi.transpose()));
         }
         // omega.timesEquals(1.0 / Y.getRowDimension());
-        g.timesEquals(1.0 / Y.getRowDimension());
+        g.timesEquals(1.0 / lens.getWeightedNumObs());
         // double q = (((g.transpose()).times(omega.inverse())).times(g)).get(0, 0); // this is the continuous updating estimator (CUE)
         // that appears to sometimes generate perverse decreases in fit when splitting (probably due to some numerical instability in inversion, and the confounding of fits versus variance)
         double q = ((g.transpose()).times(g)).get(0, 0); // this is gmm with identity weighting matrix
         
         if (debugMoment) {
+            Jama.Matrix X = lens.getX();
+            Jama.Matrix e = X.times(beta).minus(lens.getY());
             System.out.println("beta:");
             pmUtility.prettyPrint(beta);
             System.out.println("e:");
@@ -465,16 +448,15 @@ public class ContainerLinear extends ContainerMoment implements Uncmin_methods {
         // System.out.print("Computing variance for OLS with beta = ");
         // pmUtility.prettyPrintVector(b);
         double sse = 0;
-        Jama.Matrix fit = X.times(b);
-        for (int i = 0; i < Y.getRowDimension(); i++) {
-            sse += Math.pow(Y.get(i, 0) - fit.get(i, 0), 2);
+        for (int i = 0; i < lens.getNumObs(); i++) {
+            sse += lens.getWeight(i) * Math.pow(lens.getY(i) - lens.getFittedValue(i, b), 2);
         }
         System.out.println("sse in OLS: " + sse);
-        Jama.Matrix xpx = (X.transpose()).times(X);
+        Jama.Matrix xpx = lens.getXtX();
         Jama.Matrix xpxInv = xpx.inverse();
         // double sigma2 = sse / (Y.getRowDimension() - X.getColumnDimension());
-        double sigma2 = sse / (Y.getRowDimension());
-        System.out.println("sigma2 in getVariance: " + sigma2 + " n = " + Y.getRowDimension());
+        double sigma2 = sse / (lens.getWeightedNumObs());
+        System.out.println("sigma2 in getVariance: " + sigma2 + " n = " + lens.getWeightedNumObs());
 
         boolean debugHere = false;
         if (debugHere) {
@@ -527,6 +509,7 @@ public class ContainerLinear extends ContainerMoment implements Uncmin_methods {
         return getMomentObjectiveFunction(b, false);
     }
 
+    @Override
     public boolean didEstimatorFail() {
         return failedEstimation;
     }
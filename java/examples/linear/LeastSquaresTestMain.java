@@ -0,0 +1,187 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2025 Stephen P. Ryan <stephen.p.ryan@wustl.edu>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package examples.linear;
+
+import Jama.Matrix;
+import core.DataLens;
+import java.util.Random;
+import utility.pmUtility;
+
+/**
+ * Checks the least-squares kernel behind DataLens.getOLS and
+ * getPartialledOLS against solving the normal equations with Jama and
+ * against pmUtility.OLSsvd, on designs whose columns differ in scale by many
+ * orders of magnitude. Exactly collinear designs must still be reported as
+ * singular by getOLS, and solved at the minimum-norm coefficients by
+ * getPartialledOLS, whatever their scale. Prints the largest
+ * discrepancy for each case and exits with status 1 if any case fails.
+ *
+ * @author Stephen P. Ryan <stephen.p.ryan@wustl.edu>
+ */
+public class LeastSquaresTestMain {
+
+    private static final double TOLERANCE = 1E-6;
+
+    public static void main(String[] args) {
+        boolean passed = true;
+        for (double scale : new double[]{1, 1E5, 1E6, 1E-6}) {
+            passed &= checkOLS(scale);
+            passed &= checkCollinear(scale);
+            passed &= checkPartialled(scale);
+            passed &= checkPartialledCollinear(scale);
+        }
+
+        System.out.println(passed ? "All checks passed" : "Some checks FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * X = [1, x, w] with x around scale and w standard normal, n = 200
+     */
+    private static DataLens getScaledLens(double scale, long seed) {
+        Random rng = new Random(seed);
+        int n = 200;
+        Matrix X = new Matrix(n, 3);
+        Matrix Y = new Matrix(n, 1);
+        Matrix Z = new Matrix(n, 1);
+        for (int i = 0; i < n; i++) {
+            double x = scale * (1.0 + rng.nextDouble());
+            double w = rng.nextGaussian();
+            X.set(i, 0, 1.0);
+            X.set(i, 1, x);
+            X.set(i, 2, w);
+            Y.set(i, 0, 1.0 + 2.0 * x / scale - 0.5 * w + 0.1 * rng.nextGaussian());
+            Z.set(i, 0, rng.nextDouble());
+        }
+        return new DataLens(X, Y, Z, null);
+    }
+
+    /**
+     * getOLS against (X'X)^-1 X'y from Jama; the slope on x is compared
+     * after undoing the scale so every case is held to the same relative
+     * tolerance
+     */
+    private static boolean checkOLS(double scale) {
+        DataLens lens = getScaledLens(scale, 787);
+        Matrix X = lens.getX();
+        Matrix Y = lens.getY();
+        Matrix reference = X.transpose().times(X).inverse().times(X.transpose().times(Y));
+        double maxDifference;
+        try {
+            Matrix beta = lens.getOLS();
+            maxDifference = 0;
+            for (int k = 0; k < beta.getRowDimension(); k++) {
+                double unit = k == 1 ? scale : 1.0;
+                maxDifference = Math.max(maxDifference, Math.abs(beta.get(k, 0) - reference.get(k, 0)) * unit);
+            }
+        } catch (RuntimeException e) {
+            maxDifference = Double.POSITIVE_INFINITY;
+        }
+        boolean passed = maxDifference < TOLERANCE;
+        System.out.println("OLS, regressor around " + scale + ": max difference from (X'X)^-1 X'y " + maxDifference + (passed ? "" : " FAILED"));
+        return passed;
+    }
+
+    /**
+     * X = [1, x, 3x] is rank deficient at any scale, so getOLS must throw
+     */
+    private static boolean checkCollinear(double scale) {
+        DataLens lens = getScaledLens(scale, 788);
+        Matrix X = lens.getX();
+        for (int i = 0; i < X.getRowDimension(); i++) {
+            X.set(i, 2, 3.0 * X.get(i, 1));
+        }
+        DataLens collinear = new DataLens(X, lens.getY(), lens.getZ(), null);
+        boolean passed;
+        try {
+            collinear.getOLS();
+            passed = false;
+        } catch (RuntimeException e) {
+            passed = true;
+        }
+        System.out.println("OLS, collinear regressors around " + scale + ": " + (passed ? "reported singular" : "solved FAILED"));
+        return passed;
+    }
+
+    /**
+     * getPartialledOLS with the coefficient on w held at -0.5 against
+     * pmUtility.OLSsvd of y + 0.5 w on [1, x], as ContainerLinear computed it
+     * before the closed form
+     */
+    private static boolean checkPartialled(double scale) {
+        DataLens lens = getScaledLens(scale, 789);
+        Matrix X = lens.getX();
+        Matrix Y = lens.getY();
+        boolean[] fixed = {false, false, true};
+        Matrix fixedValues = new Matrix(3, 1);
+        fixedValues.set(2, 0, -0.5);
+        Matrix free = X.getMatrix(0, X.getRowDimension() - 1, 0, 1);
+        Matrix residual = Y.minus(X.getMatrix(0, X.getRowDimension() - 1, 2, 2).times(-0.5));
+        Matrix reference = pmUtility.OLSsvd(free, residual, false);
+        Matrix beta = lens.getPartialledOLS(fixed, fixedValues);
+        double maxDifference = 0;
+        for (int k = 0; k < 2; k++) {
+            double unit = k == 1 ? scale : 1.0;
+            maxDifference = Math.max(maxDifference, Math.abs(beta.get(k, 0) - reference.get(k, 0)) * unit);
+        }
+        boolean passed = maxDifference < TOLERANCE;
+        System.out.println("Partialled OLS, regressor around " + scale + ": max difference from OLSsvd " + maxDifference
+                + ", intercept " + beta.get(0, 0) + (passed ? "" : " FAILED"));
+        return passed;
+    }
+
+    /**
+     * Free columns [1, x, 3x]: the fitted values must match the
+     * least-squares fit on [1, x] at every scale. At unit scale the
+     * coefficients must also be the minimum-norm ones, (a, c / 10, 3c / 10)
+     * for the fit (a, c) on [1, x]; with x far from unit scale that split is
+     * only determined to the rounding in the intercept direction, for any
+     * solver, so it is not compared there.
+     */
+    private static boolean checkPartialledCollinear(double scale) {
+        DataLens lens = getScaledLens(scale, 790);
+        Matrix X = lens.getX();
+        for (int i = 0; i < X.getRowDimension(); i++) {
+            X.set(i, 2, 3.0 * X.get(i, 1));
+        }
+        DataLens collinear = new DataLens(X, lens.getY(), lens.getZ(), null);
+        Matrix full = X.getMatrix(0, X.getRowDimension() - 1, 0, 1);
+        Matrix reference = full.transpose().times(full).inverse().times(full.transpose().times(lens.getY()));
+        Matrix beta = collinear.getPartialledOLS(new boolean[3], new Matrix(3, 1));
+        double maxDifference = X.times(beta).minus(full.times(reference)).normInf();
+        if (scale == 1) {
+            double c = reference.get(1, 0);
+            maxDifference = Math.max(maxDifference, Math.abs(beta.get(0, 0) - reference.get(0, 0)));
+            maxDifference = Math.max(maxDifference, Math.abs(beta.get(1, 0) - c / 10.0));
+            maxDifference = Math.max(maxDifference, Math.abs(beta.get(2, 0) - 3.0 * c / 10.0));
+        }
+        boolean passed = maxDifference < TOLERANCE;
+        System.out.println("Partialled OLS, collinear regressors around " + scale + ": max difference from the least-squares fit " + maxDifference
+                + (passed ? "" : " FAILED"));
+        return passed;
+    }
+
+}
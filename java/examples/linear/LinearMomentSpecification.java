@@ -25,14 +25,19 @@ package examples.linear;
 
 // import JSci.maths.statistics.NormalDistribution;
 import Jama.Matrix;
+import core.ColumnStore;
+import core.CompactColumnStore;
 import core.ContainerMoment;
 import core.DataLens;
+import core.HeapColumnStore;
 import core.IntegerPartition;
+import core.MappedColumnStore;
 import core.MomentContinuousSplitObj;
 import core.MomentPartitionObj;
 import core.MomentSpecification;
 import java.io.FileReader;
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.util.Random;
 import utility.pmUtility;
 
@@ -45,6 +50,10 @@ public class LinearMomentSpecification implements MomentSpecification {
     Jama.Matrix X;
     Jama.Matrix Y;
     Jama.Matrix Z;
+    private ColumnStore columnStore;
+    private boolean compactColumnStore = false;
+    private boolean floatContinuousZ = false;
+    private String columnStoreFile;
     Jama.Matrix balancingVector; // is treatment status in the RCT setting
     int numObs;
     int numtrees;
@@ -99,6 +108,9 @@ public class LinearMomentSpecification implements MomentSpecification {
 
     @Override
     public int getNumMoments() {
+        if (X == null) {
+            return getColumnStore().getNumColumnsX();
+        }
         return X.getColumnDimension();
     }
 
@@ -161,7 +173,13 @@ public class LinearMomentSpecification implements MomentSpecification {
 
     @Override
     public ContainerMoment computeOptimalBeta(DataLens lens, boolean allParametersHomogeneous) {
+        return computeOptimalBeta(lens, allParametersHomogeneous, null);
+    }
+
+    @Override
+    public ContainerMoment computeOptimalBeta(DataLens lens, boolean allParametersHomogeneous, Jama.Matrix startingBeta) {
         ContainerLinear l = new ContainerLinear(lens, homogeneityIndex, homogeneousParameterVector, allParametersHomogeneous, this);
+        l.setStartingBeta(startingBeta);
         l.computeBetaAndErrors();
         failedEstimatorIndicator = l.didEstimatorFail();
         return l;
@@ -182,6 +200,52 @@ public class LinearMomentSpecification implements MomentSpecification {
         return Z;
     }
 
+    @Override
+    public ColumnStore getColumnStore() {
+        if (columnStore == null) {
+            if (columnStoreFile != null) {
+                try {
+                    columnStore = new MappedColumnStore(columnStoreFile);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Cannot map column store file " + columnStoreFile, e);
+                }
+            } else {
+                columnStore = new HeapColumnStore(X, Y, Z);
+            }
+            if (compactColumnStore) {
+                columnStore = new CompactColumnStore(columnStore, getDiscreteVector(), floatContinuousZ);
+            }
+        }
+        return columnStore;
+    }
+
+    /**
+     * Hold the data in a CompactColumnStore: the discrete Z columns are
+     * dictionary encoded and, if floatContinuous, the continuous Z columns
+     * are kept as float32 (the forest then sees the rounded values).
+     *
+     * @param floatContinuous Whether to store the continuous Z columns as
+     * float32
+     */
+    public void setCompactColumnStore(boolean floatContinuous) {
+        compactColumnStore = true;
+        floatContinuousZ = floatContinuous;
+        columnStore = null;
+    }
+
+    /**
+     * Grow forests on a columnar file written by MappedColumnStore.write
+     * instead of generated or parsed data. loadData then maps the file rather
+     * than building the Jama matrices, so getX(), getY() and getZ() return
+     * null and the forest must be given a lens on getColumnStore().
+     *
+     * @param filename Columnar file
+     */
+    public void setColumnStoreFile(String filename) {
+        columnStoreFile = filename;
+        columnStore = null;
+    }
+
     @Override
     public int numberoftrees() {
         return numtrees;
@@ -261,6 +325,14 @@ public class LinearMomentSpecification implements MomentSpecification {
 
     @Override
     public void loadData(long rngSeed) {
+        columnStore = null;
+        if (columnStoreFile != null) {
+            X = null;
+            Y = null;
+            Z = null;
+            getColumnStore(); // map now, so a bad file fails here
+            return;
+        }
         if (!MONTE_CARLO) {
             int numObsFile = 0;
             try {
@@ -402,6 +474,15 @@ public class LinearMomentSpecification implements MomentSpecification {
         return new ContainerLinear(lens, homogeneityIndex, homogeneousParameterVector, false, this);
     }
 
+    /**
+     * ContainerLinear and the linear split objectives weight every sum by
+     * lens.getWeight(i).
+     */
+    @Override
+    public boolean isWeightedLensSupported() {
+        return true;
+    }
+
     @Override
     public double getProportionObservationsToEstimateTreeStructure() {
         return 0.15;
@@ -25,6 +25,7 @@ package examples.linear;
 
 import core.MomentContinuousSplitObj;
 import core.DataLens;
+import core.LeastSquaresSweepObjective;
 import core.MomentSpecification;
 import core.SplitContainer;
 import optimization.Uncmin_methods;
@@ -33,7 +34,7 @@ import optimization.Uncmin_methods;
  *
  * @author Stephen P. Ryan <stephen.p.ryan@wustl.edu>
  */
-public class MomentContinuousSplitObjLinear extends MomentContinuousSplitObj {
+public class MomentContinuousSplitObjLinear extends MomentContinuousSplitObj implements LeastSquaresSweepObjective {
 
     SplitContainer container; 
     DataLens lens;
@@ -70,11 +71,15 @@ public class MomentContinuousSplitObjLinear extends MomentContinuousSplitObj {
 
         ContainerLinear leftLinear = new ContainerLinear(container.getLeft(), spec.getHomogeneousIndex(), spec.getHomogeneousParameterVector(), false, spec); //This object will compute the beta and MSE for the left split
         ContainerLinear rightLinear = new ContainerLinear(container.getRight(), spec.getHomogeneousIndex(), spec.getHomogeneousParameterVector(), false, spec);
+        leftLinear.setStartingBeta(startingBeta);
+        rightLinear.setStartingBeta(startingBeta);
         leftLinear.computeBetaAndErrors();
         rightLinear.computeBetaAndErrors();
 
         leftMSE = leftLinear.getGoodnessOfFit();
         rightMSE = rightLinear.getGoodnessOfFit();
+        leftFit = leftLinear;
+        rightFit = rightLinear;
 
 //        if (leftLinear.getBeta() != null && rightLinear.getBeta() != null) {
 //            pmUtility.prettyPrintVector(leftLinear.getBeta());
@@ -105,10 +110,61 @@ public class MomentContinuousSplitObjLinear extends MomentContinuousSplitObj {
 
     @Override
     public double f_to_minimize(double splitPoint) {
-        container = SplitContainer.getContinuousDataSplit(lens, splitPoint, indexSplitVariable); //This returns the data split into each leaf based on splitpoint and index of split variable
-        numObsLeft = container.getLeft().getNumObs();
-        numObsRight = container.getRight().getNumObs();
+        container = getCandidateSplit(lens, splitPoint); //This returns the data split into each leaf based on splitpoint and index of split variable
+        numObsLeft = container.getLeft().getWeightedNumObs();
+        numObsRight = container.getRight().getWeightedNumObs();
         return getSSE();
     }
 
+    /**
+     * ContainerLinear solves by closed-form OLS whether or not parameters
+     * are imposed as homogeneous (the imposed ones are partialled out of Y),
+     * so the sweep regresses on the free columns; with none free it scores
+     * the sum of squares of Y net of the imposed part, as the container does.
+     */
+    @Override
+    public int getSweepDimension() {
+        int p = 0;
+        for (boolean b : spec.getHomogeneousIndex()) {
+            if (!b) {
+                p++;
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Free columns of X go into xi; the imposed homogeneous part is
+     * subtracted from y.
+     */
+    @Override
+    public double getSweepObservation(DataLens lens, int i, double[] xi) {
+        boolean[] homogeneityIndex = spec.getHomogeneousIndex();
+        double y = lens.getY(i);
+        int j = 0;
+        for (int k = 0; k < homogeneityIndex.length; k++) {
+            if (homogeneityIndex[k]) {
+                y -= lens.getX(i, k) * spec.getHomogeneousParameter(k);
+            } else {
+                xi[j] = lens.getX(i, k);
+                j++;
+            }
+        }
+        return y;
+    }
+
+    /**
+     * Without homogeneity ContainerLinear fails on a singular X'X; with it,
+     * getPartialledOLS falls back to the minimum-norm solution.
+     */
+    @Override
+    public boolean isMinimumNormFit() {
+        return getSweepDimension() < spec.getHomogeneousIndex().length;
+    }
+
+    @Override
+    public int getSweepMinimumObservations() {
+        return Math.max(30, lens.getColumnDimensionX()); // same cutoff as ContainerLinear
+    }
+
 }
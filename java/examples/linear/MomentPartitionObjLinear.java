@@ -49,8 +49,8 @@ public class MomentPartitionObjLinear extends MomentPartitionObj {
     
     private void initialize() {
         container = getDataSplit();
-        numObsLeft = container.getLeft().getNumObs();
-        numObsRight = container.getRight().getNumObs();
+        numObsLeft = container.getLeft().getWeightedNumObs();
+        numObsRight = container.getRight().getWeightedNumObs();
     }
     
     @Override
@@ -76,6 +76,8 @@ public class MomentPartitionObjLinear extends MomentPartitionObj {
         ContainerLinear leftLinear = new ContainerLinear(container.getLeft(), spec.getHomogeneousIndex(), spec.getHomogeneousParameterVector(), false, spec); //This object will compute the beta and MSE for the left split
         ContainerLinear rightLinear = new ContainerLinear(container.getRight(), spec.getHomogeneousIndex(), spec.getHomogeneousParameterVector(), false, spec);
         
+        leftLinear.setStartingBeta(startingBeta);
+        rightLinear.setStartingBeta(startingBeta);
         leftLinear.computeBetaAndErrors();
         rightLinear.computeBetaAndErrors();
         
@@ -84,6 +86,8 @@ public class MomentPartitionObjLinear extends MomentPartitionObj {
         
         leftMSE = leftLinear.getGoodnessOfFit();
         rightMSE = rightLinear.getGoodnessOfFit();
+        leftFit = leftLinear;
+        rightFit = rightLinear;
                 
         // System.out.println(numObsLeft+" "+numObsRight+" "+leftMSE+" "+rightMSE);
         // return (leftMSE + rightMSE) / X.getNumObs();
@@ -0,0 +1,207 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 Stephen P. Ryan <stephen.p.ryan@wustl.edu>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package examples.linear;
+
+import Jama.Matrix;
+import core.DataLens;
+import core.DisjointSet;
+import core.IntegerPartition;
+import core.LeastSquaresSweepObjective;
+import core.MomentPartitionObj;
+import core.PartitionSweep;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Checks the Gray-code partition sweep against refitting each partition,
+ * and the bitmask bipartition enumeration against the original recursive
+ * enumeration. Prints the largest discrepancy for each case and exits with
+ * status 1 if any case fails.
+ *
+ * @author Stephen P. Ryan <stephen.p.ryan@wustl.edu>
+ */
+public class PartitionSweepTestMain {
+
+    private static final double TOLERANCE = 1E-8;
+
+    public static void main(String[] args) {
+        boolean passed = true;
+        for (int m = 1; m <= 12; m++) {
+            passed &= checkEnumeration(m);
+        }
+
+        LinearMomentSpecification spec = new LinearMomentSpecification(3000, 2);
+        spec.loadData(787);
+        for (int numCategories : new int[]{3, 6}) {
+            Matrix Z = spec.getZ().copy();
+            for (int i = 0; i < Z.getRowDimension(); i++) {
+                Z.set(i, 2, (i * 7 + (int) (3 * Z.get(i, 0))) % numCategories + 3);
+            }
+            DataLens lens = new DataLens(spec.getX(), spec.getY(), Z, null);
+            passed &= checkSweep(spec, lens, numCategories, "unweighted", false);
+            passed &= checkSweep(spec, lens, numCategories, "unweighted, sampled", true);
+            DataLens weighted = lens.getWeightedResampledDataLens(314);
+            passed &= checkSweep(spec, weighted, numCategories, "weighted bootstrap", false);
+        }
+
+        System.out.println(passed ? "All checks passed" : "Some checks FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Scores every partition of the discrete column both ways and compares
+     * the total, left and right SSEs and the counts on each side (and, for
+     * the full enumeration, that the sweep's partitions are listed in the
+     * same order)
+     */
+    private static boolean checkSweep(LinearMomentSpecification spec, DataLens lens, int numCategories, String label, boolean sampled) {
+        int indexSplitVariable = 2;
+        int minCount = 50;
+        double minProportion = 0.01;
+        ArrayList<Integer> categories = new ArrayList<>();
+        for (int c = 0; c < numCategories; c++) {
+            categories.add(c + 3);
+        }
+        /**
+         * Sampling fewer than all partitions takes the sweep's
+         * refit-per-partition branch instead of the Gray-code walk
+         */
+        ArrayList<IntegerPartition> partitions = sampled
+                ? DisjointSet.sampleDisjointSets(categories, (int) Math.max(1, DisjointSet.countDisjointSets(numCategories) / 2), new Random(5))
+                : DisjointSet.computeAllDisjointSets(categories);
+
+        LeastSquaresSweepObjective obj = (LeastSquaresSweepObjective) spec.getFminObjective(lens, indexSplitVariable, minProportion, minCount);
+        PartitionSweep sweep = sampled
+                ? new PartitionSweep(obj, lens, indexSplitVariable, categories, partitions, minCount, minProportion)
+                : new PartitionSweep(obj, lens, indexSplitVariable, categories, minCount, minProportion);
+
+        double maxDifference = 0;
+        int countMismatches = sweep.getNumPartitions() == partitions.size() ? 0 : 1;
+        for (int i = 0; i < partitions.size(); i++) {
+            if (!sweep.getPartition(i).getLeft().equals(partitions.get(i).getLeft())) {
+                countMismatches++;
+            }
+            MomentPartitionObj refit = spec.getMomentPartitionObj(lens, indexSplitVariable, partitions.get(i));
+            double sse = refit.getSSE();
+            maxDifference = Math.max(maxDifference, relativeDifference(sse, sweep.getSSE(i)));
+            if (!Double.isInfinite(sse)) {
+                maxDifference = Math.max(maxDifference, relativeDifference(refit.getLeftSSE(), sweep.getLeftSSE(i)));
+                maxDifference = Math.max(maxDifference, relativeDifference(refit.getRightSSE(), sweep.getRightSSE(i)));
+                if (refit.getEffectiveNumObsLeft() != sweep.getNumObsLeft(i) || refit.getEffectiveNumObsRight() != sweep.getNumObsRight(i)) {
+                    countMismatches++;
+                }
+            }
+        }
+        boolean passed = maxDifference < TOLERANCE && countMismatches == 0;
+        System.out.println("Sweep, " + numCategories + " categories (" + label + "), " + partitions.size() + " partitions: max relative difference "
+                + maxDifference + ", count mismatches " + countMismatches + (passed ? "" : " FAILED"));
+        return passed;
+    }
+
+    private static double relativeDifference(double a, double b) {
+        if (a == b) {
+            return 0;
+        }
+        if (Double.isInfinite(a) || Double.isInfinite(b)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Math.abs(a - b) / Math.max(1.0, Math.abs(a));
+    }
+
+    /**
+     * Compares DisjointSet.computeAllDisjointSets with the recursive
+     * enumeration it replaced: same partitions, same order, same side on
+     * the left
+     */
+    private static boolean checkEnumeration(int numElements) {
+        ArrayList<Integer> parent = new ArrayList<>();
+        for (int i = 0; i < numElements; i++) {
+            parent.add(i * 3 + 2);
+        }
+        ArrayList<IntegerPartition> enumerated = DisjointSet.computeAllDisjointSets(parent);
+        ArrayList<IntegerPartition> reference = recursiveDisjointSets(parent);
+        boolean passed = enumerated.size() == reference.size() && enumerated.size() == DisjointSet.countDisjointSets(numElements);
+        for (int i = 0; passed && i < enumerated.size(); i++) {
+            passed = enumerated.get(i).getLeft().equals(reference.get(i).getLeft())
+                    && enumerated.get(i).getRight().equals(reference.get(i).getRight());
+        }
+        System.out.println("Enumeration, " + numElements + " elements: " + enumerated.size() + " partitions, reference " + reference.size()
+                + (passed ? "" : " FAILED"));
+        return passed;
+    }
+
+    /**
+     * The original enumeration: count through every 0/1 assignment with the
+     * first element as the most significant digit, keep groups of one up to
+     * half the elements (rounded up), require the first element in a group
+     * of exactly that size, and drop a group whose complement has already
+     * been listed. The original also listed a single element against an
+     * empty group; that is not a bipartition, so it is skipped here
+     */
+    private static ArrayList<IntegerPartition> recursiveDisjointSets(ArrayList<Integer> parent) {
+        int numElements = parent.size();
+        int maxGroupSize = (numElements + 1) / 2;
+        ArrayList<IntegerPartition> results = new ArrayList<>();
+        ArrayList<String> listed = new ArrayList<>();
+        int[] digits = new int[numElements];
+        count(digits, 0, parent, maxGroupSize, results, listed);
+        return results;
+    }
+
+    private static void count(int[] digits, int index, ArrayList<Integer> parent, int maxGroupSize, ArrayList<IntegerPartition> results, ArrayList<String> listed) {
+        if (index < digits.length) {
+            digits[index] = 0;
+            count(digits, index + 1, parent, maxGroupSize, results, listed);
+            digits[index] = 1;
+            count(digits, index + 1, parent, maxGroupSize, results, listed);
+            digits[index] = 0;
+            return;
+        }
+        int size = 0;
+        for (int d : digits) {
+            size += d;
+        }
+        if (size < 1 || size == digits.length || size > maxGroupSize || (size == maxGroupSize && digits[0] == 0)) {
+            return;
+        }
+        ArrayList<Integer> group1 = new ArrayList<>();
+        ArrayList<Integer> group2 = new ArrayList<>();
+        for (int i = 0; i < digits.length; i++) {
+            if (digits[i] == 1) {
+                group1.add(parent.get(i));
+            } else {
+                group2.add(parent.get(i));
+            }
+        }
+        if (listed.contains(group1.toString()) || listed.contains(group2.toString())) {
+            return;
+        }
+        listed.add(group1.toString());
+        listed.add(group2.toString());
+        results.add(new IntegerPartition(group1, group2));
+    }
+
+}
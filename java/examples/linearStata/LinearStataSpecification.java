@@ -26,8 +26,10 @@ package examples.linearStata;
 // import JSci.maths.statistics.NormalDistribution;
 import JSci.maths.statistics.NormalDistribution;
 import Jama.Matrix;
+import core.ColumnStore;
 import core.ContainerMoment;
 import core.DataLens;
+import core.HeapColumnStore;
 import core.IntegerPartition;
 import core.MomentContinuousSplitObj;
 import core.MomentPartitionObj;
@@ -47,6 +49,7 @@ public class LinearStataSpecification implements MomentSpecification {
     Jama.Matrix X;
     Jama.Matrix Y;
     Jama.Matrix Z;
+    private ColumnStore columnStore;
     Jama.Matrix balancingVector; // is treatment status in the RCT setting
     int numObs;
     int numTrees;
@@ -176,6 +179,14 @@ public class LinearStataSpecification implements MomentSpecification {
         return Z;
     }
 
+    @Override
+    public ColumnStore getColumnStore() {
+        if (columnStore == null) {
+            columnStore = new HeapColumnStore(X, Y, Z);
+        }
+        return columnStore;
+    }
+
     @Override
     public Matrix getBetaTruth(Matrix zi, Random rng) {
         // we don't know, this shouldn't be called in a real application
@@ -189,6 +200,7 @@ public class LinearStataSpecification implements MomentSpecification {
     
     @Override
     public void loadData(long rngSeed) {
+        columnStore = null;
         // No-op: Data is already loaded in Stata and passed via constructor
     }
     
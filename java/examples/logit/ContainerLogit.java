@@ -41,16 +41,12 @@ public class ContainerLogit extends ContainerMoment implements Uncmin_methods {
     Jama.Matrix containerVariance;
     boolean debugVerbose = false;
     DataLens lens;
-    Jama.Matrix X;
-    Jama.Matrix Y;
     boolean[] homogeneityIndex;
     Jama.Matrix homogeneityParameters;
     boolean allParametersHomogeneous;
 
     public ContainerLogit(DataLens lens, boolean[] homogeneityIndex, Jama.Matrix homogeneityParameters, boolean allParametersHomogeneous) {
         this.lens = lens;
-        X = lens.getX();
-        Y = lens.getY();
         this.homogeneityIndex = homogeneityIndex;
         this.homogeneityParameters = homogeneityParameters;
         this.allParametersHomogeneous = allParametersHomogeneous;
@@ -59,7 +55,7 @@ public class ContainerLogit extends ContainerMoment implements Uncmin_methods {
 
     @Override
     public void computeBetaAndErrors() {
-        if (Y.getRowDimension() < 30) {
+        if (lens.getNumObs() < 30) {
             // System.out.println("Too few observations");
             containerBeta = null;
             goodnessOfFit = Double.POSITIVE_INFINITY;
@@ -67,7 +63,7 @@ public class ContainerLogit extends ContainerMoment implements Uncmin_methods {
             try {
                 Uncmin_f77 minimizer = new Uncmin_f77(false);
 
-                int numParams = X.getColumnDimension();
+                int numParams = lens.getColumnDimensionX();
                 if (!allParametersHomogeneous) {
                     for (boolean b : homogeneityIndex) {
                         if (b) {
@@ -78,6 +74,7 @@ public class ContainerLogit extends ContainerMoment implements Uncmin_methods {
                 // System.out.println("numParams: " + numParams);
 
                 double[] guess = new double[numParams + 1];
+                fillStartingGuess(guess, homogeneityIndex, allParametersHomogeneous);
 
                 double[] xpls = new double[numParams + 1];
                 double[] fpls = new double[2];
@@ -106,11 +103,11 @@ public class ContainerLogit extends ContainerMoment implements Uncmin_methods {
                 minimizer.optif9_f77(numParams, guess, this, typsiz, fscale, method, iexp, msg, ndigit, itnlim, iagflg, iahflg, dlt, gradtl, stepmx, steptl, xpls, fpls, gpls, itrmcd, a, udiag);
                 // System.out.println("Out of uncmin");
 
-                Jama.Matrix betaUncmin = new Jama.Matrix(X.getColumnDimension(), 1);
+                Jama.Matrix betaUncmin = new Jama.Matrix(lens.getColumnDimensionX(), 1);
 
                 int counter = 0;
 
-                for (int i = 0; i < X.getColumnDimension(); i++) {
+                for (int i = 0; i < lens.getColumnDimensionX(); i++) {
                     if (homogeneityIndex[i]) {
                         betaUncmin.set(i, 0, homogeneityParameters.get(i, 0));
                     } else {
@@ -155,19 +152,19 @@ public class ContainerLogit extends ContainerMoment implements Uncmin_methods {
 
     @Override
     public Jama.Matrix getGi(Jama.Matrix beta, int i) {
-        int numMoments = X.getColumnDimension();
+        int numMoments = lens.getColumnDimensionX();
 
         double utility = 0;
-        for (int k = 0; k < X.getColumnDimension(); k++) {
-            utility += X.get(i, k) * beta.get(k, 0);
+        for (int k = 0; k < lens.getColumnDimensionX(); k++) {
+            utility += lens.getX(i, k) * beta.get(k, 0);
         }
         double shareInside = Math.exp(utility) / (1.0 + Math.exp(utility));
 
         Jama.Matrix gi = new Jama.Matrix(numMoments, 1);
 
-        double ei = Y.get(i, 0) - shareInside;
+        double ei = lens.getY(i) - shareInside;
         for (int m = 0; m < numMoments; m++) {
-            gi.set(m, 0, X.get(i, m) * ei);
+            gi.set(m, 0, lens.getX(i, m) * ei);
         }
 
         return gi;
@@ -176,11 +173,11 @@ public class ContainerLogit extends ContainerMoment implements Uncmin_methods {
     @Override
     public Jama.Matrix getMomentGWithoutDivision(Jama.Matrix beta) {
         // Jama.Matrix runningTotal = new Jama.Matrix(X.getRowDimension(), X.getColumnDimension());
-        int numMoments = X.getColumnDimension();
+        int numMoments = lens.getColumnDimensionX();
         Jama.Matrix g = new Jama.Matrix(numMoments, 1); // x'e, one row for each x
 
         // turns out using gi method here is crazy slow!        
-        for (int i = 0; i < X.getRowDimension(); i++) {
+        for (int i = 0; i < lens.getNumObs(); i++) {
             Jama.Matrix gi = getGi(beta, i);
             g.plusEquals(gi);
         }
@@ -193,18 +190,18 @@ public class ContainerLogit extends ContainerMoment implements Uncmin_methods {
         // LLH is much much faster
         boolean useGMM = false;
         if (useGMM) {
-            int numMoments = X.getColumnDimension();
+            int numMoments = lens.getColumnDimensionX();
             Jama.Matrix g = new Jama.Matrix(numMoments, 1); // x'e, one row for each x
             Jama.Matrix omega = new Jama.Matrix(numMoments, numMoments);
 
             // turns out using gi method here is crazy slow!        
-            for (int i = 0; i < X.getRowDimension(); i++) {
+            for (int i = 0; i < lens.getNumObs(); i++) {
                 Jama.Matrix gi = getGi(beta, i);
                 g.plusEquals(gi);
                 omega.plusEquals(gi.times(gi.transpose()));
             }
-            omega.timesEquals(1.0 / Y.getRowDimension());
-            g.timesEquals(1.0 / Y.getRowDimension());
+            omega.timesEquals(1.0 / lens.getNumObs());
+            g.timesEquals(1.0 / lens.getNumObs());
             // double q = (((g.transpose()).times(omega.inverse())).times(g)).get(0, 0); // this is the continuous updating estimator (CUE)
             // that appears to sometimes generate perverse decreases in fit when splitting (probably due to some numerical instability in inversion, and the confounding of fits versus variance)
             double q = ((g.transpose()).times(g)).get(0, 0); // this is gmm with identity weighting matrix
@@ -217,10 +214,10 @@ public class ContainerLogit extends ContainerMoment implements Uncmin_methods {
 
     private double computeLLH(Jama.Matrix beta) {
         double llh = 0;
-        for (int i = 0; i < X.getRowDimension(); i++) {
-            double u = beta.get(0, 0) * X.get(i, 0) + beta.get(1, 0) * X.get(i, 1);
+        for (int i = 0; i < lens.getNumObs(); i++) {
+            double u = beta.get(0, 0) * lens.getX(i, 0) + beta.get(1, 0) * lens.getX(i, 1);
             double insideShare = Math.exp(u) / (1.0 + Math.exp(u));
-            if (Y.get(i, 0) == 1) {
+            if (lens.getY(i) == 1) {
                 llh += Math.log(insideShare);
             } else {
                 llh += Math.log(1.0 - insideShare);
@@ -267,8 +264,8 @@ public class ContainerLogit extends ContainerMoment implements Uncmin_methods {
          * homogeneous parameters)
          */
         int counter = 0;
-        Jama.Matrix b = new Jama.Matrix(X.getColumnDimension(), 1);
-        for (int i = 0; i < X.getColumnDimension(); i++) {
+        Jama.Matrix b = new Jama.Matrix(lens.getColumnDimensionX(), 1);
+        for (int i = 0; i < lens.getColumnDimensionX(); i++) {
             if (homogeneityIndex[i]) {
                 b.set(i, 0, homogeneityParameters.get(i, 0));
             } else {
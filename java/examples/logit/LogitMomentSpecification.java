@@ -26,8 +26,10 @@ package examples.logit;
 // import JSci.maths.statistics.NormalDistribution;
 import JSci.maths.statistics.NormalDistribution;
 import Jama.Matrix;
+import core.ColumnStore;
 import core.ContainerMoment;
 import core.DataLens;
+import core.HeapColumnStore;
 import core.IntegerPartition;
 import core.MomentContinuousSplitObj;
 import core.MomentPartitionObj;
@@ -46,6 +48,7 @@ public class LogitMomentSpecification implements MomentSpecification {
     Jama.Matrix X;
     Jama.Matrix Y;
     Jama.Matrix Z;
+    private ColumnStore columnStore;
     Jama.Matrix balancingVector; // is treatment status in the RCT setting
     int numObs;
     int numtrees;
@@ -129,7 +132,13 @@ public class LogitMomentSpecification implements MomentSpecification {
 
     @Override
     public ContainerMoment computeOptimalBeta(DataLens lens, boolean allParametersHomogeneous) {
+        return computeOptimalBeta(lens, allParametersHomogeneous, null);
+    }
+
+    @Override
+    public ContainerMoment computeOptimalBeta(DataLens lens, boolean allParametersHomogeneous, Jama.Matrix startingBeta) {
         ContainerLogit l = new ContainerLogit(lens, homogeneityIndex, homogeneousParameterVector, allParametersHomogeneous);
+        l.setStartingBeta(startingBeta);
         l.computeBetaAndErrors();
         return l;
     }
@@ -149,6 +158,14 @@ public class LogitMomentSpecification implements MomentSpecification {
         return Z;
     }
 
+    @Override
+    public ColumnStore getColumnStore() {
+        if (columnStore == null) {
+            columnStore = new HeapColumnStore(X, Y, Z);
+        }
+        return columnStore;
+    }
+
     @Override
     public int numberoftrees() {
         return numtrees;
@@ -242,6 +259,7 @@ public class LogitMomentSpecification implements MomentSpecification {
 
     @Override
     public void loadData(long rngSeed) {
+        columnStore = null;
         if (!MONTE_CARLO) {
             int numObsFile = 0;
             try {
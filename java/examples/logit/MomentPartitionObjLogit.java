@@ -71,6 +71,8 @@ public class MomentPartitionObjLogit extends MomentPartitionObj {
         ContainerLogit leftLogit = new ContainerLogit(container.getLeft(), spec.getHomogeneousIndex(), spec.getHomogeneousParameterVector(), false); //This object will compute the beta and MSE for the left split
         ContainerLogit rightLogit = new ContainerLogit(container.getRight(), spec.getHomogeneousIndex(), spec.getHomogeneousParameterVector(), false);
         
+        leftLogit.setStartingBeta(startingBeta);
+        rightLogit.setStartingBeta(startingBeta);
         leftLogit.computeBetaAndErrors();
         rightLogit.computeBetaAndErrors();
         
@@ -79,6 +81,8 @@ public class MomentPartitionObjLogit extends MomentPartitionObj {
         
         leftMSE = leftLogit.getGoodnessOfFit();
         rightMSE = rightLogit.getGoodnessOfFit();
+        leftFit = leftLogit;
+        rightFit = rightLogit;
                 
         // System.out.println(numObsLeft+" "+numObsRight+" "+leftMSE+" "+rightMSE);
         // return (leftMSE + rightMSE) / X.getNumObs();
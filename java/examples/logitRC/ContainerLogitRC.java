@@ -41,16 +41,12 @@ public class ContainerLogitRC extends ContainerMoment implements Uncmin_methods
     Jama.Matrix containerVariance;
     boolean debugVerbose = false;
     DataLens lens;
-    Jama.Matrix X;
-    Jama.Matrix Y;
     boolean[] homogeneityIndex;
     Jama.Matrix homogeneityParameters;
     boolean allParametersHomogeneous;
 
     public ContainerLogitRC(DataLens lens, boolean[] homogeneityIndex, Jama.Matrix homogeneityParameters, boolean allParametersHomogeneous) {
         this.lens = lens;
-        X = lens.getX();
-        Y = lens.getY();
         this.homogeneityIndex = homogeneityIndex;
         this.homogeneityParameters = homogeneityParameters;
         this.allParametersHomogeneous = allParametersHomogeneous;
@@ -58,7 +54,7 @@ public class ContainerLogitRC extends ContainerMoment implements Uncmin_methods
     }
 
     public void computeBetaAndErrors() {
-        if (Y.getRowDimension() < 30) {
+        if (lens.getNumObs() < 30) {
             // System.out.println("Too few observations");
             containerBeta = null;
             goodnessOfFit = Double.POSITIVE_INFINITY;
@@ -66,7 +62,7 @@ public class ContainerLogitRC extends ContainerMoment implements Uncmin_methods
             try {
                 Uncmin_f77 minimizer = new Uncmin_f77(false);
 
-                int numParams = X.getColumnDimension();
+                int numParams = lens.getColumnDimensionX();
                 if (!allParametersHomogeneous) {
                     for (boolean b : homogeneityIndex) {
                         if (b) {
@@ -77,6 +73,7 @@ public class ContainerLogitRC extends ContainerMoment implements Uncmin_methods
                 // System.out.println("numParams: " + numParams);
 
                 double[] guess = new double[numParams + 1];
+                fillStartingGuess(guess, homogeneityIndex, allParametersHomogeneous);
 
                 double[] xpls = new double[numParams + 1];
                 double[] fpls = new double[2];
@@ -105,11 +102,11 @@ public class ContainerLogitRC extends ContainerMoment implements Uncmin_methods
                 minimizer.optif9_f77(numParams, guess, this, typsiz, fscale, method, iexp, msg, ndigit, itnlim, iagflg, iahflg, dlt, gradtl, stepmx, steptl, xpls, fpls, gpls, itrmcd, a, udiag);
                 // System.out.println("Out of uncmin");
 
-                Jama.Matrix betaUncmin = new Jama.Matrix(X.getColumnDimension(), 1);
+                Jama.Matrix betaUncmin = new Jama.Matrix(lens.getColumnDimensionX(), 1);
 
                 int counter = 0;
 
-                for (int i = 0; i < X.getColumnDimension(); i++) {
+                for (int i = 0; i < lens.getColumnDimensionX(); i++) {
                     if (homogeneityIndex[i]) {
                         betaUncmin.set(i, 0, homogeneityParameters.get(i, 0));
                     } else {
@@ -159,10 +156,10 @@ public class ContainerLogitRC extends ContainerMoment implements Uncmin_methods
 
     private double computeSSE(Jama.Matrix beta) {
         double sse = 0;
-        for (int i = 0; i < Y.getRowDimension(); i++) {
-            double utility = X.get(i, 0) * beta.get(0, 0) + X.get(i, 1) * beta.get(1, 0);
+        for (int i = 0; i < lens.getNumObs(); i++) {
+            double utility = lens.getX(i, 0) * beta.get(0, 0) + lens.getX(i, 1) * beta.get(1, 0);
             double shareInside = Math.exp(utility) / (1.0 + Math.exp(utility));
-            double error = Y.get(i, 0) - shareInside;
+            double error = lens.getY(i) - shareInside;
             sse += Math.pow(error, 2);
         }
         return sse;
@@ -178,7 +175,7 @@ public class ContainerLogitRC extends ContainerMoment implements Uncmin_methods
 
     @Override
     public Jama.Matrix getGi(Jama.Matrix beta, int i) {
-        int numMoments = X.getColumnDimension();
+        int numMoments = lens.getColumnDimensionX();
 
         // try using the derivatives with respect to beta as the moments here (two X's)
         if (numMoments != 2) {
@@ -186,24 +183,24 @@ public class ContainerLogitRC extends ContainerMoment implements Uncmin_methods
             System.exit(0);
         }
 
-        double utility = X.get(i, 0) * beta.get(0, 0) + X.get(i, 1) * beta.get(1, 0);
+        double utility = lens.getX(i, 0) * beta.get(0, 0) + lens.getX(i, 1) * beta.get(1, 0);
         double shareInside = Math.exp(utility) / (1.0 + Math.exp(utility));
 
         Jama.Matrix gi = new Jama.Matrix(numMoments, 1);
 
         boolean useScores = false;
         if (useScores) {
-            if (Y.get(i, 0) == 1) {
-                gi.set(0, 0, X.get(i, 0) * (1.0 - shareInside));
-                gi.set(1, 0, X.get(i, 1) * (1.0 - shareInside));
+            if (lens.getY(i) == 1) {
+                gi.set(0, 0, lens.getX(i, 0) * (1.0 - shareInside));
+                gi.set(1, 0, lens.getX(i, 1) * (1.0 - shareInside));
             } else {
-                gi.set(0, 0, -X.get(i, 0) * shareInside);
-                gi.set(1, 0, -X.get(i, 1) * shareInside);
+                gi.set(0, 0, -lens.getX(i, 0) * shareInside);
+                gi.set(1, 0, -lens.getX(i, 1) * shareInside);
             }
         } else {
-            double ei = Y.get(i, 0) - shareInside; // already using aggregate share on the LHS!
-            gi.set(0, 0, X.get(i, 0) * ei);
-            gi.set(1, 0, X.get(i, 1) * ei);
+            double ei = lens.getY(i) - shareInside; // already using aggregate share on the LHS!
+            gi.set(0, 0, lens.getX(i, 0) * ei);
+            gi.set(1, 0, lens.getX(i, 1) * ei);
         }
 
         return gi;
@@ -212,11 +209,11 @@ public class ContainerLogitRC extends ContainerMoment implements Uncmin_methods
     @Override
     public Jama.Matrix getMomentGWithoutDivision(Jama.Matrix beta) {
         // Jama.Matrix runningTotal = new Jama.Matrix(X.getRowDimension(), X.getColumnDimension());
-        int numMoments = X.getColumnDimension();
+        int numMoments = lens.getColumnDimensionX();
         Jama.Matrix g = new Jama.Matrix(numMoments, 1); // x'e, one row for each x
 
         // turns out using gi method here is crazy slow!        
-        for (int i = 0; i < X.getRowDimension(); i++) {
+        for (int i = 0; i < lens.getNumObs(); i++) {
             Jama.Matrix gi = getGi(beta, i);
             g.plusEquals(gi);
         }
@@ -229,18 +226,18 @@ public class ContainerLogitRC extends ContainerMoment implements Uncmin_methods
         // LLH is much much faster
         boolean useGMM = true; // we will start with GMM since I'd need to think about what the likelihood means in the aggregate case
         if (useGMM) {
-            int numMoments = X.getColumnDimension();
+            int numMoments = lens.getColumnDimensionX();
             Jama.Matrix g = new Jama.Matrix(numMoments, 1); // x'e, one row for each x
             Jama.Matrix omega = new Jama.Matrix(numMoments, numMoments);
 
             // turns out using gi method here is crazy slow!        
-            for (int i = 0; i < X.getRowDimension(); i++) {
+            for (int i = 0; i < lens.getNumObs(); i++) {
                 Jama.Matrix gi = getGi(beta, i);
                 g.plusEquals(gi);
                 omega.plusEquals(gi.times(gi.transpose()));
             }
-            omega.timesEquals(1.0 / Y.getRowDimension());
-            g.timesEquals(1.0 / Y.getRowDimension());
+            omega.timesEquals(1.0 / lens.getNumObs());
+            g.timesEquals(1.0 / lens.getNumObs());
             // double q = (((g.transpose()).times(omega.inverse())).times(g)).get(0, 0); // this is the continuous updating estimator (CUE)
             // that appears to sometimes generate perverse decreases in fit when splitting (probably due to some numerical instability in inversion, and the confounding of fits versus variance)
             double q = ((g.transpose()).times(g)).get(0, 0); // this is gmm with identity weighting matrix
@@ -255,10 +252,10 @@ public class ContainerLogitRC extends ContainerMoment implements Uncmin_methods
         System.out.println("ComputeLLH not implemented correctly");
         System.exit(0);
         double llh = 0;
-        for (int i = 0; i < X.getRowDimension(); i++) {
-            double u = beta.get(0, 0) * X.get(i, 0) + beta.get(1, 0) * X.get(i, 1);
+        for (int i = 0; i < lens.getNumObs(); i++) {
+            double u = beta.get(0, 0) * lens.getX(i, 0) + beta.get(1, 0) * lens.getX(i, 1);
             double insideShare = Math.exp(u) / (1.0 + Math.exp(u));
-            if (Y.get(i, 0) == 1) {
+            if (lens.getY(i) == 1) {
                 llh += Math.log(insideShare);
             } else {
                 llh += Math.log(1.0 - insideShare);
@@ -307,8 +304,8 @@ public class ContainerLogitRC extends ContainerMoment implements Uncmin_methods
          * homogeneous parameters)
          */
         int counter = 0;
-        Jama.Matrix b = new Jama.Matrix(X.getColumnDimension(), 1);
-        for (int i = 0; i < X.getColumnDimension(); i++) {
+        Jama.Matrix b = new Jama.Matrix(lens.getColumnDimensionX(), 1);
+        for (int i = 0; i < lens.getColumnDimensionX(); i++) {
             if (homogeneityIndex[i]) {
                 b.set(i, 0, homogeneityParameters.get(i, 0));
             } else {
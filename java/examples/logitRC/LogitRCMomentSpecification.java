@@ -27,8 +27,10 @@ package examples.logitRC;
 import JSci.maths.statistics.NormalDistribution;
 import Jama.Matrix;
 import core.ChartGenerator;
+import core.ColumnStore;
 import core.ContainerMoment;
 import core.DataLens;
+import core.HeapColumnStore;
 import core.IntegerPartition;
 import core.MomentContinuousSplitObj;
 import core.MomentForest;
@@ -53,6 +55,7 @@ public class LogitRCMomentSpecification implements MomentSpecification {
     Jama.Matrix X;
     Jama.Matrix Y;
     Jama.Matrix Z;
+    private ColumnStore columnStore;
     Jama.Matrix balancingVector; // is treatment status in the RCT setting
     int numObs;
     int numtrees;
@@ -142,7 +145,13 @@ public class LogitRCMomentSpecification implements MomentSpecification {
 
     @Override
     public ContainerMoment computeOptimalBeta(DataLens lens, boolean allParametersHomogeneous) {
+        return computeOptimalBeta(lens, allParametersHomogeneous, null);
+    }
+
+    @Override
+    public ContainerMoment computeOptimalBeta(DataLens lens, boolean allParametersHomogeneous, Jama.Matrix startingBeta) {
         ContainerLogitRC l = new ContainerLogitRC(lens, homogeneityIndex, homogeneousParameterVector, allParametersHomogeneous);
+        l.setStartingBeta(startingBeta);
         l.computeBetaAndErrors();
         return l;
     }
@@ -164,6 +173,14 @@ public class LogitRCMomentSpecification implements MomentSpecification {
         // return Z;
     }
 
+    @Override
+    public ColumnStore getColumnStore() {
+        if (columnStore == null) {
+            columnStore = new HeapColumnStore(X, Y, Z);
+        }
+        return columnStore;
+    }
+
     @Override
     public int numberoftrees() {
         return numtrees;
@@ -384,6 +401,7 @@ public class LogitRCMomentSpecification implements MomentSpecification {
 
     @Override
     public void loadData(long rngSeed) {
+        columnStore = null;
         if (!MONTE_CARLO) {
             int numObsFile = 0;
             try {
@@ -71,6 +71,8 @@ public class MomentContinuousSplitObjLogitRC extends MomentContinuousSplitObj {
 
         ContainerLogitRC leftLogit = new ContainerLogitRC(container.getLeft(), spec.getHomogeneousIndex(), spec.getHomogeneousParameterVector(), false); //This object will compute the beta and MSE for the left split
         ContainerLogitRC rightLogit = new ContainerLogitRC(container.getRight(), spec.getHomogeneousIndex(), spec.getHomogeneousParameterVector(), false);
+        leftLogit.setStartingBeta(startingBeta);
+        rightLogit.setStartingBeta(startingBeta);
         // System.out.println("Compute left");
         leftLogit.computeBetaAndErrors();
         // System.out.println("Compute right");
@@ -79,6 +81,8 @@ public class MomentContinuousSplitObjLogitRC extends MomentContinuousSplitObj {
 
         leftMSE = leftLogit.getGoodnessOfFit();
         rightMSE = rightLogit.getGoodnessOfFit();
+        leftFit = leftLogit;
+        rightFit = rightLogit;
 
         if (debugVerbose) {
             System.out.println("MSE = " + (leftMSE + rightMSE) + " n_Left: " + numObsLeft + " n_Right: " + numObsRight + " MSE_Left: " + leftMSE + " MSE_Right: " + rightMSE + " minCount: " + minCount);
@@ -105,7 +109,7 @@ public class MomentContinuousSplitObjLogitRC extends MomentContinuousSplitObj {
 
     @Override
     public double f_to_minimize(double splitPoint) {
-        container = SplitContainer.getContinuousDataSplit(lens, splitPoint, indexSplitVariable); //This returns the data split into each leaf based on splitpoint and index of split variable
+        container = getCandidateSplit(lens, splitPoint); //This returns the data split into each leaf based on splitpoint and index of split variable
         numObsLeft = container.getLeft().getNumObs();
         numObsRight = container.getRight().getNumObs();
         return getSSE();
@@ -26,8 +26,10 @@ package examples.logitVSL;
 // import JSci.maths.statistics.NormalDistribution;
 import JSci.maths.statistics.NormalDistribution;
 import Jama.Matrix;
+import core.ColumnStore;
 import core.ContainerMoment;
 import core.DataLens;
+import core.HeapColumnStore;
 import core.IntegerPartition;
 import core.MomentContinuousSplitObj;
 import core.MomentPartitionObj;
@@ -46,6 +48,7 @@ public class LogitVSLMomentSpecification implements MomentSpecification {
     Jama.Matrix X;
     Jama.Matrix Y;
     Jama.Matrix Z;
+    private ColumnStore columnStore;
 
     int numObs;
     int numtrees;
@@ -119,7 +122,13 @@ public class LogitVSLMomentSpecification implements MomentSpecification {
 
     @Override
     public ContainerMoment computeOptimalBeta(DataLens lens, boolean allParametersHomogeneous) {
+        return computeOptimalBeta(lens, allParametersHomogeneous, null);
+    }
+
+    @Override
+    public ContainerMoment computeOptimalBeta(DataLens lens, boolean allParametersHomogeneous, Jama.Matrix startingBeta) {
         ContainerLogitVSL l = new ContainerLogitVSL(lens, homogeneityIndex, homogeneousParameterVector, allParametersHomogeneous);
+        l.setStartingBeta(startingBeta);
         l.computeBetaAndErrors();
         return l;
     }
@@ -139,6 +148,14 @@ public class LogitVSLMomentSpecification implements MomentSpecification {
         return Z;
     }
 
+    @Override
+    public ColumnStore getColumnStore() {
+        if (columnStore == null) {
+            columnStore = new HeapColumnStore(X, Y, Z);
+        }
+        return columnStore;
+    }
+
     @Override
     public int numberoftrees() {
         return numtrees;
@@ -175,6 +192,7 @@ public class LogitVSLMomentSpecification implements MomentSpecification {
 
     @Override
     public void loadData(long rngSeed) {
+        columnStore = null;
 
         int numObsFile = 0;
         try {